@@ -0,0 +1,90 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every IAccount operation for every implementation, on one thread.
+ * Operations that would drift the state are paired with their opposite (convert there and back,
+ * transfer there and back), so each invocation starts from the same balances.
+ * Run with the default jmh profile arguments to get allocation rates from the GC profiler.
+ * The contended versions are in ContendedAccountBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountOperationsBenchmark {
+
+    @Param({BenchmarkAccounts.ACCOUNT, BenchmarkAccounts.LONG_ACCOUNT, BenchmarkAccounts.CONCURRENT_ACCOUNT, BenchmarkAccounts.ACCOUNT_STORE})
+    public String implementation;
+
+    private final BigDecimal amount = new BigDecimal("0.01");
+    private final BigDecimal newBalance = new BigDecimal("-40.25");
+    private final BigDecimal twice = new BigDecimal("2");
+    private final BigDecimal half = new BigDecimal("0.5");
+    /**
+     * More than other can ever withdraw
+     */
+    private final BigDecimal tooMuch = new BigDecimal(1_000_000);
+
+    private IAccount account;
+    private IAccount other;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // Large enough that a withdraw-only benchmark never reaches the overdraft limit
+        account = BenchmarkAccounts.create(implementation, new BigDecimal(1_000_000_000_000L), "SEK", new BigDecimal(100));
+        other = BenchmarkAccounts.create(implementation, new BigDecimal(100), "SEK", new BigDecimal(100));
+    }
+
+    @Benchmark
+    public BigDecimal withdraw() {
+        return account.withdraw(amount);
+    }
+
+    @Benchmark
+    public BigDecimal withdrawRejected() {
+        return other.withdraw(tooMuch);
+    }
+
+    @Benchmark
+    public BigDecimal deposit() {
+        return account.deposit(amount);
+    }
+
+    @Benchmark
+    public BigDecimal depositWithdrawAll() {
+        other.deposit(amount);
+        return other.withdrawAll();
+    }
+
+    @Benchmark
+    public boolean convertToCurrency() {
+        other.convertToCurrency("EUR", twice);
+        return other.convertToCurrency("SEK", half);
+    }
+
+    @Benchmark
+    public boolean convertToCurrencyDouble() {
+        other.convertToCurrency("EUR", 2.0);
+        return other.convertToCurrency("SEK", 0.5);
+    }
+
+    @Benchmark
+    public BigDecimal transferToAccount() {
+        account.TransferToAccount(other);
+        other.TransferToAccount(account);
+        return account.getBalance();
+    }
+
+    @Benchmark
+    public BigDecimal setBalance() {
+        other.setBalance(newBalance);
+        return other.getBalance();
+    }
+}
@@ -0,0 +1,56 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Total overdraft exposure in one currency, computed over an array of Account objects
+ * compared to a scan over the columns of an AccountStore holding the same accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class AccountStoreScanBenchmark {
+
+    @Param({"1000000"})
+    public int accountCount;
+
+    private Account[] accounts;
+    private AccountStore store;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(7);
+        String[] currencies = {"SEK", "EUR", "USD"};
+        accounts = new Account[accountCount];
+        store = new AccountStore(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            BigDecimal balance = BigDecimal.valueOf(random.nextInt(-100_000, 1_000_000), 2);
+            String currency = currencies[random.nextInt(currencies.length)];
+            accounts[i] = new Account(balance, currency, new BigDecimal(1000));
+            store.add(balance, currency, new BigDecimal(1000));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal accountArrayExposure() {
+        BigDecimal exposure = BigDecimal.ZERO;
+        for (Account account : accounts) {
+            if (account.getCurrencyCode() == CurrencyCode.SEK && account.getBalance().signum() < 0) {
+                exposure = exposure.subtract(account.getBalance());
+            }
+        }
+        return exposure;
+    }
+
+    @Benchmark
+    public long storeExposure() {
+        return store.totalExposureMinor(CurrencyCode.SEK);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applying a settlement batch with AccountBatchProcessor compared to one deposit/withdraw call per posting.
+ * The postings sum up to zero, so every invocation starts from the same balance.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPostingBenchmark {
+
+    @Param({"1000"})
+    public int batchSize;
+
+    private BigDecimal[] postings;
+    private long[] minorPostings;
+    private Account account;
+    private LongAccount longAccount;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        postings = new BigDecimal[batchSize];
+        minorPostings = new long[batchSize];
+        for (int i = 0; i < batchSize; i += 2) {
+            long amount = random.nextInt(1, 100_000);
+            minorPostings[i] = amount;
+            minorPostings[i + 1] = -amount;
+            postings[i] = BigDecimal.valueOf(amount, 2);
+            postings[i + 1] = BigDecimal.valueOf(-amount, 2);
+        }
+        account = new Account(new BigDecimal(1_000_000), "SEK", BigDecimal.ZERO);
+        longAccount = new LongAccount(new BigDecimal(1_000_000), "SEK", BigDecimal.ZERO);
+    }
+
+    @Benchmark
+    public BigDecimal accountOneByOne() {
+        BigDecimal balance = null;
+        for (BigDecimal posting : postings) {
+            balance = posting.signum() > 0 ? account.deposit(posting) : account.withdraw(posting.negate());
+        }
+        return balance;
+    }
+
+    @Benchmark
+    public BatchResult accountBatch() {
+        return AccountBatchProcessor.apply(account, postings);
+    }
+
+    @Benchmark
+    public BatchResult longAccountBatchMinor() {
+        return AccountBatchProcessor.apply(longAccount, minorPostings);
+    }
+}
@@ -0,0 +1,33 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * Creates accounts of the implementation a benchmark is parameterized with
+ */
+final class BenchmarkAccounts {
+
+    static final String ACCOUNT = "Account";
+    static final String LONG_ACCOUNT = "LongAccount";
+    static final String CONCURRENT_ACCOUNT = "ConcurrentAccount";
+    static final String ACCOUNT_STORE = "AccountStore";
+
+    private BenchmarkAccounts() {
+    }
+
+    static IAccount create(String implementation, BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
+        switch (implementation) {
+            case ACCOUNT:
+                return new Account(starting_balance, currency, max_overdrawn);
+            case LONG_ACCOUNT:
+                return new LongAccount(starting_balance, currency, max_overdrawn);
+            case CONCURRENT_ACCOUNT:
+                return new ConcurrentAccount(starting_balance, currency, max_overdrawn);
+            case ACCOUNT_STORE:
+                AccountStore store = new AccountStore(1);
+                return store.view(store.add(starting_balance, currency, max_overdrawn));
+            default:
+                throw new IllegalArgumentException("Unknown implementation " + implementation);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IAccount operations with 4 threads sharing the same two accounts.
+ * Only thread-safe implementations are listed, the others would break the overdraft rule under contention.
+ * The deposit/withdraw group runs writers against readers of getBalance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContendedAccountBenchmark {
+
+    @Param({BenchmarkAccounts.CONCURRENT_ACCOUNT})
+    public String implementation;
+
+    private final BigDecimal amount = new BigDecimal("0.01");
+    private final BigDecimal newBalance = new BigDecimal("-40.25");
+
+    private IAccount account;
+    private IAccount other;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        account = BenchmarkAccounts.create(implementation, new BigDecimal(1_000_000_000_000L), "SEK", new BigDecimal(100));
+        other = BenchmarkAccounts.create(implementation, new BigDecimal(100), "SEK", new BigDecimal(100));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal withdraw() {
+        return account.withdraw(amount);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal deposit() {
+        return account.deposit(amount);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal depositWithdrawAll() {
+        other.deposit(amount);
+        return other.withdrawAll();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean convertToCurrency() {
+        // Rate 1 so that threads converting in different orders can't make the balance drift
+        other.convertToCurrency("EUR", 1.0);
+        return other.convertToCurrency("SEK", 1.0);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal transferToAccount() {
+        account.TransferToAccount(other);
+        other.TransferToAccount(account);
+        return account.getBalance();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public BigDecimal setBalance() {
+        other.setBalance(newBalance);
+        return other.getBalance();
+    }
+
+    @Benchmark
+    @Group("depositWhileReading")
+    @GroupThreads(2)
+    public BigDecimal depositWriter() {
+        return account.deposit(amount);
+    }
+
+    @Benchmark
+    @Group("depositWhileReading")
+    @GroupThreads(2)
+    public BigDecimal balanceReader() {
+        return account.getBalance();
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the BigDecimal based Account with the long based LongAccount.
+ * Each benchmark deposits and withdraws the same amount so the balance stays put between invocations.
+ * Run with -prof gc to see the allocation rate per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedPointAccountBenchmark {
+
+    private final BigDecimal amount = new BigDecimal("12.50");
+    private final BigDecimal newBalance = new BigDecimal("-40.25");
+
+    private Account account;
+    private LongAccount longAccount;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        account = new Account(new BigDecimal(1000), "SEK", new BigDecimal(100));
+        longAccount = new LongAccount(new BigDecimal(1000), "SEK", new BigDecimal(100));
+    }
+
+    @Benchmark
+    public BigDecimal accountWithdrawDeposit() {
+        account.withdraw(amount);
+        return account.deposit(amount);
+    }
+
+    @Benchmark
+    public BigDecimal longAccountWithdrawDeposit() {
+        longAccount.withdraw(amount);
+        return longAccount.deposit(amount);
+    }
+
+    @Benchmark
+    public long longAccountWithdrawDepositMinor() {
+        longAccount.withdrawMinor(1250);
+        return longAccount.depositMinor(1250);
+    }
+
+    @Benchmark
+    public BigDecimal accountSetBalance() {
+        account.setBalance(newBalance);
+        return account.getBalance();
+    }
+
+    @Benchmark
+    public BigDecimal longAccountSetBalance() {
+        longAccount.setBalance(newBalance);
+        return longAccount.getBalance();
+    }
+
+    @Benchmark
+    public long longAccountSetBalanceMinor() {
+        longAccount.setBalanceMinor(-4025);
+        return longAccount.getBalanceMinor();
+    }
+}
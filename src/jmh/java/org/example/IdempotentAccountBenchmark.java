@@ -0,0 +1,46 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of idempotency keys: a plain deposit, a deposit with a new key each time (runs and is cached),
+ * and a retried key (answered from the cache, which should not allocate).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdempotentAccountBenchmark {
+
+    private final BigDecimal amount = new BigDecimal("0.01");
+
+    private IdempotentAccount account;
+    private long nextKey;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        account = new IdempotentAccount(new Account(new BigDecimal(1_000_000), "SEK", BigDecimal.ZERO),
+                new DedupCache(1 << 20, 60_000));
+        account.deposit(-1, amount);
+    }
+
+    @Benchmark
+    public BigDecimal plainDeposit() {
+        return account.deposit(amount);
+    }
+
+    @Benchmark
+    public BigDecimal newKeyDeposit() {
+        return account.deposit(nextKey++, amount);
+    }
+
+    @Benchmark
+    public BigDecimal retriedKeyDeposit() {
+        return account.deposit(-1, amount);
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of InstrumentedAccount over the plain account, with metrics disabled and enabled.
+ * Run with -prof gc to check that recording doesn't allocate (the allocation per op should match the plain account).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentedAccountBenchmark {
+
+    @Param({BenchmarkAccounts.ACCOUNT, BenchmarkAccounts.LONG_ACCOUNT})
+    public String implementation;
+
+    @Param({"plain", "disabled", "enabled"})
+    public String metrics;
+
+    private final BigDecimal amount = new BigDecimal("0.01");
+    private final BigDecimal tooMuch = new BigDecimal(1_000_000);
+
+    private IAccount account;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        account = BenchmarkAccounts.create(implementation, new BigDecimal(1_000_000_000_000L), "SEK", new BigDecimal(100));
+        if (!metrics.equals("plain")) {
+            account = new InstrumentedAccount(account, new AccountMetrics(metrics.equals("enabled")));
+        }
+    }
+
+    @Benchmark
+    public BigDecimal depositWithdraw() {
+        account.deposit(amount);
+        return account.withdraw(amount);
+    }
+
+    @Benchmark
+    public BigDecimal withdrawRejected() {
+        return account.withdraw(tooMuch);
+    }
+}
@@ -0,0 +1,55 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposit/withdraw throughput of a plain Account compared to the same account behind a TransactionJournal.
+ * The journal is forced to disk by its background flusher, never on the benchmark thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JournalBenchmark {
+
+    private final BigDecimal amount = new BigDecimal("12.50");
+
+    private Path file;
+    private TransactionJournal journal;
+    private Account account;
+    private JournaledAccount journaledAccount;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        file = Files.createTempFile("account", ".journal");
+        journal = TransactionJournal.open(file, Account::new, 64 * 1024 * 1024, TransactionJournal.DEFAULT_FLUSH_INTERVAL_MILLIS);
+        account = new Account(new BigDecimal(1000), "SEK", BigDecimal.ZERO);
+        journaledAccount = journal.create(1, new BigDecimal(1000), "SEK", BigDecimal.ZERO);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public BigDecimal plain() {
+        account.withdraw(amount);
+        return account.deposit(amount);
+    }
+
+    @Benchmark
+    public BigDecimal journaled() {
+        journaledAccount.withdraw(amount);
+        return journaledAccount.deposit(amount);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of ShardedLedger for 1 to 8 shards, fed by as many producer threads as there are cores.
+ * Each invocation submits a batch of operations on random accounts and waits for all of them,
+ * so the writers always have work queued. With enough cores throughput should grow close to linearly with shards;
+ * on a machine with fewer cores than shards + producers the writers just take turns.
+ * transferShare is the share of operations that are transfers (most of them between two shards).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardedLedgerBenchmark {
+
+    private static final int BATCH = 256;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    @Param({"0.0", "0.1"})
+    public double transferShare;
+
+    @Param({"10000"})
+    public int accountCount;
+
+    private final BigDecimal amount = BigDecimal.ONE;
+
+    private ShardedLedger ledger;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ledger = new ShardedLedger(shards);
+        CompletableFuture<?>[] created = new CompletableFuture<?>[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            created[i] = ledger.create(i, new BigDecimal(1_000_000_000), "SEK", BigDecimal.ZERO);
+        }
+        CompletableFuture.allOf(created).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ledger.close();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @OperationsPerInvocation(BATCH)
+    public void batch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        CompletableFuture<?>[] replies = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            long id = random.nextInt(accountCount);
+            if (random.nextDouble() < transferShare) {
+                replies[i] = ledger.transfer(id, random.nextInt(accountCount));
+            } else if (random.nextBoolean()) {
+                replies[i] = ledger.submit(id, accounts -> accounts.get(id).deposit(amount));
+            } else {
+                replies[i] = ledger.submit(id, accounts -> accounts.get(id).withdraw(amount));
+            }
+        }
+        CompletableFuture.allOf(replies).join();
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer throughput of TransferEngine with 1, 4 and all available threads.
+ * hotSkew is the share of transfers that touch one of the few "hot" accounts,
+ * 0 spreads the load evenly over all accounts, 0.9 makes almost every transfer fight over the same locks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransferEngineBenchmark {
+
+    private static final int HOT_ACCOUNTS = 4;
+
+    @Param({"10000"})
+    public int accountCount;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double hotSkew;
+
+    private final BigDecimal amount = BigDecimal.ONE;
+
+    private Account[] accounts;
+    private TransferEngine engine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            // Large balances, so transfers in random directions practically never run out of money
+            accounts[i] = new Account(new BigDecimal(1_000_000_000), "SEK", BigDecimal.ZERO);
+        }
+        engine = new TransferEngine();
+    }
+
+    private Account pick(ThreadLocalRandom random) {
+        if (random.nextDouble() < hotSkew) {
+            return accounts[random.nextInt(HOT_ACCOUNTS)];
+        }
+        return accounts[random.nextInt(accountCount)];
+    }
+
+    private TransferResult transferRandom() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return engine.transfer(pick(random), pick(random), amount);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TransferResult transfer1Thread() {
+        return transferRandom();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public TransferResult transfer4Threads() {
+        return transferRandom();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public TransferResult transferMaxThreads() {
+        return transferRandom();
+    }
+}
@@ -1,5 +1,6 @@
+package org.example;
+
 import java.math.BigDecimal;
-import java.util.Objects;
 
 public class Account implements IAccount {
 
@@ -8,9 +9,9 @@ public class Account implements IAccount {
      */
     private BigDecimal balance;
     /**
-     * Currency used in this account, can be "SEK", "EUR", or "USD"
+     * Currency used in this account, e.g. "SEK", "EUR", or "USD"
      */
-    private String currency;
+    private CurrencyCode currency;
     /**
      * max_overdrawn is a non-negative number indicating how much the account can be "in the red"
      * The minimum balance of the account is -1 * max_overdrawn
@@ -30,13 +31,18 @@ public class Account implements IAccount {
     }
 
     public String getCurrency() {
+        return currency.getCode();
+    }
+
+    public CurrencyCode getCurrencyCode() {
         return currency;
     }
 
     public void setCurrency(String currency) {
-        this.currency = currency;
+        this.currency = CurrencyCode.of(currency);
     }
 
+    @Override
     public void setBalance(BigDecimal balance) {
         // Small change to if statement. (from "<=" to "<") No longer changes value if it equals to 0. No real change in functionality. 
         if(!(balance.compareTo(this.max_overdrawn.multiply(new BigDecimal(-1))) < 0)) {
@@ -50,13 +56,13 @@ public class Account implements IAccount {
 
     public Account() {
         this.balance = BigDecimal.ZERO;
-        this.currency = "SEK";
+        this.currency = CurrencyCode.SEK;
         this.max_overdrawn = BigDecimal.ZERO;
     }
 
     public Account(BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
         this.balance = starting_balance;
-        this.currency = currency;
+        this.currency = CurrencyCode.of(currency);
         if(max_overdrawn.compareTo(BigDecimal.ZERO) <= 0) {
             this.max_overdrawn = BigDecimal.ZERO;
         } else {
@@ -104,14 +110,31 @@ public class Account implements IAccount {
         if (rate <= 0) { // If rate is negative
             return false;
         }
-        String S_rate = rate + "";
-        this.currency = currencyCode;
-        // stripTrailingZero conversion sets the correct format in the new balance/maxOverdrawn
-        this.setMaxOverdrawn(new BigDecimal(max_overdrawn.multiply(new BigDecimal(S_rate)).stripTrailingZeros().toPlainString()));
-        this.setBalance(new BigDecimal(balance.multiply(new BigDecimal(S_rate)).stripTrailingZeros().toPlainString()));
+        return convertToCurrency(currencyCode, new BigDecimal(Double.toString(rate)));
+    }
+
+    @Override
+    // Same as above with an already parsed rate, so bulk conversions don't parse the rate for every account.
+    // The results are normalized without going through a String.
+    public boolean convertToCurrency(String currencyCode, BigDecimal rate) {
+        if (rate.compareTo(BigDecimal.ZERO) <= 0) { // If rate is negative
+            return false;
+        }
+        this.currency = CurrencyCode.of(currencyCode);
+        this.setMaxOverdrawn(withoutTrailingZeros(max_overdrawn.multiply(rate)));
+        this.setBalance(withoutTrailingZeros(balance.multiply(rate)));
         return true;
     }
 
+    /*
+     * Strips trailing zeroes but never returns a negative scale, so 20000.0 becomes 20000 and not 2E+4
+     * (the same value new BigDecimal(x.stripTrailingZeros().toPlainString()) gives).
+     * */
+    static BigDecimal withoutTrailingZeros(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() < 0 ? stripped.setScale(0) : stripped;
+    }
+
     @Override
     // Problem: Transfered money from an account no matter the currency and balance.
     // Fix: 
@@ -121,7 +144,7 @@ public class Account implements IAccount {
     public void TransferToAccount(IAccount to_account) {
         if (this.balance.compareTo(BigDecimal.ZERO) <= 0) {
             return; // Can't transfer negative funds
-        } else if (!Objects.equals(this.getCurrency(), to_account.getCurrency())) {
+        } else if (this.currency != to_account.getCurrencyCode()) {
             return; // Can't transfer to an account with different currency
         }
         to_account.deposit(this.balance);
@@ -0,0 +1,110 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+
+/**
+ * Applies many signed postings to an account in one call.
+ * A positive posting is a deposit, a negative posting is a withdrawal of its absolute value and zero is always rejected,
+ * exactly as if deposit/withdraw had been called once per posting in the same order.
+ * A posting the account can't represent (more decimals than its currency has) is rejected on its own
+ * instead of failing the whole batch.
+ * For Account and LongAccount the balance is kept in a local variable while the batch runs and only
+ * written back once at the end, other IAccount implementations fall back to one call per posting.
+ */
+public final class AccountBatchProcessor {
+
+    private AccountBatchProcessor() {
+    }
+
+    public static BatchResult apply(IAccount account, BigDecimal[] postings) {
+        if (account instanceof Account) {
+            return applyToAccount((Account) account, postings);
+        } else if (account instanceof LongAccount) {
+            LongAccount longAccount = (LongAccount) account;
+            long[] minorPostings = new long[postings.length];
+            for (int i = 0; i < postings.length; i++) {
+                try {
+                    minorPostings[i] = MinorUnits.toMinor(postings[i], longAccount.getScale());
+                } catch (ArithmeticException e) {
+                    minorPostings[i] = 0; // Can't be represented, rejected like a zero posting
+                }
+            }
+            return apply(longAccount, minorPostings);
+        }
+        return applyOneByOne(account, postings);
+    }
+
+    /*
+     * Same as apply, with the postings given in minor units of the account's currency
+     * */
+    public static BatchResult apply(LongAccount account, long[] postings) {
+        BitSet accepted = new BitSet(postings.length);
+        long floor = -account.getMaxOverdrawnMinor();
+        long balance = account.getBalanceMinor();
+        boolean changed = false;
+        for (int i = 0; i < postings.length; i++) {
+            long posting = postings[i];
+            if (posting == 0) {
+                continue;
+            }
+            long newBalance = MinorUnits.add(balance, posting);
+            if (newBalance >= floor) {
+                balance = newBalance;
+                accepted.set(i);
+                changed = true;
+            }
+        }
+        if (changed) {
+            account.setBalanceMinor(balance);
+        }
+        return new BatchResult(accepted, postings.length, account.getBalance());
+    }
+
+    private static BatchResult applyToAccount(Account account, BigDecimal[] postings) {
+        BitSet accepted = new BitSet(postings.length);
+        BigDecimal floor = account.getMaxOverdrawn().negate();
+        BigDecimal balance = account.getBalance();
+        boolean changed = false;
+        for (int i = 0; i < postings.length; i++) {
+            BigDecimal posting = postings[i];
+            if (posting.signum() == 0) {
+                continue;
+            }
+            // Both deposit and withdraw end up in setBalance, which only accepts balances >= -max_overdrawn
+            BigDecimal newBalance = balance.add(posting);
+            if (newBalance.compareTo(floor) >= 0) {
+                balance = newBalance;
+                accepted.set(i);
+                changed = true;
+            }
+        }
+        if (changed) {
+            account.setBalance(balance);
+        }
+        return new BatchResult(accepted, postings.length, account.getBalance());
+    }
+
+    private static BatchResult applyOneByOne(IAccount account, BigDecimal[] postings) {
+        BitSet accepted = new BitSet(postings.length);
+        for (int i = 0; i < postings.length; i++) {
+            BigDecimal posting = postings[i];
+            boolean applied;
+            try {
+                if (posting.signum() > 0) {
+                    applied = account.tryDeposit(posting);
+                } else if (posting.signum() < 0) {
+                    applied = account.tryWithdraw(posting.negate());
+                } else {
+                    continue;
+                }
+            } catch (ArithmeticException e) {
+                applied = false; // More decimals than the account's currency has
+            }
+            if (applied) {
+                accepted.set(i);
+            }
+        }
+        return new BatchResult(accepted, postings.length, account.getBalance());
+    }
+}
@@ -0,0 +1,110 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * One command for the CommandProcessor, parsed from or written as one line of text:
+ * <pre>
+ * CREATE id starting_balance currency max_overdrawn
+ * DEPOSIT id amount
+ * WITHDRAW id amount
+ * WITHDRAW_ALL id
+ * TRANSFER from_id to_id
+ * CONVERT id currency rate
+ * BALANCE id
+ * </pre>
+ * Fields that a command type doesn't use are null (or -1 for target).
+ */
+public record AccountCommand(Type type, long account, long target, BigDecimal amount, String currency,
+                             BigDecimal rate, BigDecimal max_overdrawn) {
+
+    public enum Type {
+        CREATE,
+        DEPOSIT,
+        WITHDRAW,
+        WITHDRAW_ALL,
+        TRANSFER,
+        CONVERT,
+        BALANCE
+    }
+
+    public static AccountCommand create(long account, BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
+        return new AccountCommand(Type.CREATE, account, -1, starting_balance, CurrencyCode.of(currency).getCode(), null, max_overdrawn);
+    }
+
+    public static AccountCommand deposit(long account, BigDecimal amount) {
+        return new AccountCommand(Type.DEPOSIT, account, -1, amount, null, null, null);
+    }
+
+    public static AccountCommand withdraw(long account, BigDecimal amount) {
+        return new AccountCommand(Type.WITHDRAW, account, -1, amount, null, null, null);
+    }
+
+    public static AccountCommand withdrawAll(long account) {
+        return new AccountCommand(Type.WITHDRAW_ALL, account, -1, null, null, null, null);
+    }
+
+    public static AccountCommand transfer(long from_account, long to_account) {
+        return new AccountCommand(Type.TRANSFER, from_account, to_account, null, null, null, null);
+    }
+
+    public static AccountCommand convert(long account, String currency, BigDecimal rate) {
+        return new AccountCommand(Type.CONVERT, account, -1, null, CurrencyCode.of(currency).getCode(), rate, null);
+    }
+
+    public static AccountCommand balance(long account) {
+        return new AccountCommand(Type.BALANCE, account, -1, null, null, null, null);
+    }
+
+    /*
+     * Parses one line in the format above, the command name is case insensitive.
+     * Throws IllegalArgumentException if the line isn't a valid command.
+     * */
+    public static AccountCommand parse(String line) {
+        String[] parts = line.trim().split("\\s+");
+        Type type;
+        try {
+            type = Type.valueOf(parts[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown command: " + parts[0]);
+        }
+        int expected = switch (type) {
+            case CREATE -> 5;
+            case DEPOSIT, WITHDRAW, TRANSFER -> 3;
+            case CONVERT -> 4;
+            case WITHDRAW_ALL, BALANCE -> 2;
+        };
+        if (parts.length != expected) {
+            throw new IllegalArgumentException(type + " takes " + (expected - 1) + " arguments: " + line);
+        }
+        try {
+            long account = Long.parseLong(parts[1]);
+            return switch (type) {
+                case CREATE -> create(account, new BigDecimal(parts[2]), parts[3], new BigDecimal(parts[4]));
+                case DEPOSIT -> deposit(account, new BigDecimal(parts[2]));
+                case WITHDRAW -> withdraw(account, new BigDecimal(parts[2]));
+                case WITHDRAW_ALL -> withdrawAll(account);
+                case TRANSFER -> transfer(account, Long.parseLong(parts[2]));
+                case CONVERT -> convert(account, parts[2], new BigDecimal(parts[3]));
+                case BALANCE -> balance(account);
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in: " + line);
+        }
+    }
+
+    /*
+     * The command as a line that parse() reads back
+     * */
+    @Override
+    public String toString() {
+        return switch (type) {
+            case CREATE -> type + " " + account + " " + amount.toPlainString() + " " + currency + " " + max_overdrawn.toPlainString();
+            case DEPOSIT, WITHDRAW -> type + " " + account + " " + amount.toPlainString();
+            case TRANSFER -> type + " " + account + " " + target;
+            case CONVERT -> type + " " + account + " " + currency + " " + rate.toPlainString();
+            case WITHDRAW_ALL, BALANCE -> type + " " + account;
+        };
+    }
+}
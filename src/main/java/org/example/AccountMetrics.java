@@ -0,0 +1,178 @@
+package org.example;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and latencies of account operations, recorded by InstrumentedAccount.
+ * One AccountMetrics is normally shared by all accounts. All counters are preallocated,
+ * so recording never allocates, and when the metrics are disabled the accounts skip recording (and timing) altogether.
+ * Read the numbers with snapshot() or over JMX after register().
+ */
+public class AccountMetrics implements AccountMetricsMXBean {
+
+    private static final AccountOperation[] OPERATIONS = AccountOperation.values();
+    private static final RejectReason[] REASONS = RejectReason.values();
+
+    private volatile boolean enabled;
+    private final LongAdder[] successes = new LongAdder[OPERATIONS.length];
+    /**
+     * Indexed by operation.ordinal() * REASONS.length + reason.ordinal()
+     */
+    private final LongAdder[] rejections = new LongAdder[OPERATIONS.length * REASONS.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+
+    public AccountMetrics() {
+        this(true);
+    }
+
+    public AccountMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            successes[i] = new LongAdder();
+            latencies[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void recordSuccess(AccountOperation operation, long nanos) {
+        successes[operation.ordinal()].increment();
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    public void recordRejection(AccountOperation operation, RejectReason reason, long nanos) {
+        rejections[operation.ordinal() * REASONS.length + reason.ordinal()].increment();
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    public long getSuccessCount(AccountOperation operation) {
+        return successes[operation.ordinal()].sum();
+    }
+
+    public long getRejectionCount(AccountOperation operation, RejectReason reason) {
+        return rejections[operation.ordinal() * REASONS.length + reason.ordinal()].sum();
+    }
+
+    /*
+     * Rejections of the operation for any reason
+     * */
+    public long getRejectionCount(AccountOperation operation) {
+        long sum = 0;
+        for (RejectReason reason : REASONS) {
+            sum += getRejectionCount(operation, reason);
+        }
+        return sum;
+    }
+
+    /*
+     * Latencies of both accepted and rejected calls of the operation. This is the live histogram, see snapshot()
+     * */
+    public LatencyHistogram getLatency(AccountOperation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /*
+     * Copies the current numbers, the copy doesn't change when more operations are recorded
+     * */
+    public AccountMetrics snapshot() {
+        AccountMetrics copy = new AccountMetrics(enabled);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            copy.successes[i].add(successes[i].sum());
+            copy.latencies[i].add(latencies[i]);
+        }
+        for (int i = 0; i < rejections.length; i++) {
+            copy.rejections[i].add(rejections[i].sum());
+        }
+        return copy;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            successes[i].reset();
+            latencies[i].reset();
+        }
+        for (LongAdder rejection : rejections) {
+            rejection.reset();
+        }
+    }
+
+    /*
+     * Registers these metrics with the platform MBean server under org.example:type=AccountMetrics,name=<name>
+     * */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("org.example:type=AccountMetrics,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public Map<String, Long> getSuccessCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (AccountOperation operation : OPERATIONS) {
+            counts.put(operation.name(), getSuccessCount(operation));
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getRejectionCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (AccountOperation operation : OPERATIONS) {
+            for (RejectReason reason : REASONS) {
+                counts.put(operation.name() + "." + reason.name(), getRejectionCount(operation, reason));
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50() {
+        return latencyAtPercentile(50);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99() {
+        return latencyAtPercentile(99);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP999() {
+        return latencyAtPercentile(99.9);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMax() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (AccountOperation operation : OPERATIONS) {
+            values.put(operation.name(), getLatency(operation).getMax());
+        }
+        return values;
+    }
+
+    private Map<String, Long> latencyAtPercentile(double percentile) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (AccountOperation operation : OPERATIONS) {
+            values.put(operation.name(), getLatency(operation).getValueAtPercentile(percentile));
+        }
+        return values;
+    }
+}
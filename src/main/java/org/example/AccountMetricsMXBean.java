@@ -0,0 +1,28 @@
+package org.example;
+
+import java.util.Map;
+
+/**
+ * JMX view of AccountMetrics. Maps are keyed by operation name, rejections by "OPERATION.REASON",
+ * latencies are in nanoseconds.
+ */
+public interface AccountMetricsMXBean {
+
+    public boolean isEnabled();
+
+    public void setEnabled(boolean enabled);
+
+    public Map<String, Long> getSuccessCounts();
+
+    public Map<String, Long> getRejectionCounts();
+
+    public Map<String, Long> getLatencyP50();
+
+    public Map<String, Long> getLatencyP99();
+
+    public Map<String, Long> getLatencyP999();
+
+    public Map<String, Long> getLatencyMax();
+
+    public void reset();
+}
@@ -0,0 +1,12 @@
+package org.example;
+
+/**
+ * The operations of IAccount that change an account
+ */
+public enum AccountOperation {
+    WITHDRAW,
+    WITHDRAW_ALL,
+    DEPOSIT,
+    CONVERT,
+    TRANSFER
+}
@@ -0,0 +1,132 @@
+package org.example;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Compact binary snapshots of account state (balance, currency and max_overdrawn per account id).
+ * A full snapshot holds every account, an incremental snapshot only the accounts changed since the previous snapshot,
+ * loading a full snapshot followed by its incremental ones gives the latest state.
+ * Snapshots are read straight from a read-only memory mapping, without copying the file into the heap first.
+ * Each snapshot also stores the journal position it was taken at, so replay can start from there.
+ *
+ * Layout: int magic, short format version, byte kind (0 full, 1 incremental), long journal position, int count,
+ * then per account: long id, 3 byte currency, balance and max_overdrawn encoded as in BinaryCodec.
+ */
+public final class AccountSnapshot {
+
+    static final int MAGIC = 0x41434E54; // "ACNT"
+    static final short FORMAT_VERSION = 1;
+    static final byte FULL = 0;
+    static final byte INCREMENTAL = 1;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES + 1 + Long.BYTES + Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private AccountSnapshot() {
+    }
+
+    /*
+     * Writes every account in the map
+     * */
+    public static void writeFull(Path file, Map<Long, ? extends IAccount> accounts, long journal_position) throws IOException {
+        write(file, FULL, accounts, accounts.keySet(), journal_position);
+    }
+
+    /*
+     * Writes only the accounts with the given ids
+     * */
+    public static void writeIncremental(Path file, Map<Long, ? extends IAccount> accounts, Collection<Long> changed_ids,
+                                        long journal_position) throws IOException {
+        write(file, INCREMENTAL, accounts, changed_ids, journal_position);
+    }
+
+    private static void write(Path file, byte kind, Map<Long, ? extends IAccount> accounts, Collection<Long> ids,
+                              long journal_position) throws IOException {
+        // Written next to the target and moved into place, so a crash never leaves half a snapshot behind
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC);
+            buffer.putShort(FORMAT_VERSION);
+            buffer.put(kind);
+            buffer.putLong(journal_position);
+            buffer.putInt(ids.size());
+            for (Long id : ids) {
+                IAccount account = accounts.get(id);
+                if (account == null) {
+                    throw new IllegalArgumentException("No account with id " + id);
+                }
+                BigDecimal balance = account.getBalance();
+                BigDecimal maxOverdrawn = account.getMaxOverdrawn();
+                int size = Long.BYTES + BinaryCodec.CURRENCY_SIZE
+                        + BinaryCodec.decimalSize(balance) + BinaryCodec.decimalSize(maxOverdrawn);
+                if (buffer.remaining() < size) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(id);
+                BinaryCodec.putCurrency(buffer, account.getCurrencyCode());
+                BinaryCodec.putDecimal(buffer, balance);
+                BinaryCodec.putDecimal(buffer, maxOverdrawn);
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /*
+     * Loads a snapshot into accounts, creating each account with the factory.
+     * A full snapshot replaces the content of the map, an incremental one only replaces the accounts it holds.
+     * Returns the journal position the snapshot was taken at.
+     * */
+    public static long load(Path file, TransactionJournal.AccountFactory factory, Map<Long, IAccount> accounts) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not an account snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an account snapshot: " + file);
+            }
+            short version = buffer.getShort();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + version + ": " + file);
+            }
+            byte kind = buffer.get();
+            long journalPosition = buffer.getLong();
+            int count = buffer.getInt();
+            if (kind == FULL) {
+                accounts.clear();
+            } else if (kind != INCREMENTAL) {
+                throw new IOException("Unknown snapshot kind " + kind + ": " + file);
+            }
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong();
+                String currency = BinaryCodec.getCurrency(buffer);
+                BigDecimal balance = BinaryCodec.getDecimal(buffer);
+                BigDecimal maxOverdrawn = BinaryCodec.getDecimal(buffer);
+                accounts.put(id, factory.create(balance, currency, maxOverdrawn));
+            }
+            return journalPosition;
+        }
+    }
+}
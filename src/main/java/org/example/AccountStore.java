@@ -0,0 +1,321 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Holds a large number of accounts as columns of primitive arrays instead of one object per account.
+ * Balance and max_overdrawn are stored in minor units (like LongAccount) and the currency as a CurrencyCode id,
+ * which is 20 bytes per account and lets bulk scans run straight over the arrays.
+ * view(index) hands out a small IAccount that reads and writes the columns of one account.
+ * Like Account, the store is not thread-safe.
+ */
+public class AccountStore {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private long[] balances;
+    private long[] maxOverdrawn;
+    private int[] currencyIds;
+    private int size;
+
+    public AccountStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public AccountStore(int initial_capacity) {
+        int capacity = Math.max(1, initial_capacity);
+        this.balances = new long[capacity];
+        this.maxOverdrawn = new long[capacity];
+        this.currencyIds = new int[capacity];
+    }
+
+    /*
+     * Adds an account and returns its index
+     * */
+    public int add(BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
+        CurrencyCode currencyCode = CurrencyCode.of(currency);
+        int scale = currencyCode.getScale();
+        return add(MinorUnits.toMinor(starting_balance, scale), currencyCode, MinorUnits.toMinor(max_overdrawn, scale));
+    }
+
+    /*
+     * Adds an account with balance and max_overdrawn in minor units and returns its index
+     * */
+    public int add(long starting_balance_minor, CurrencyCode currency, long max_overdrawn_minor) {
+        if (size == balances.length) {
+            grow();
+        }
+        int index = size++;
+        balances[index] = starting_balance_minor;
+        maxOverdrawn[index] = Math.max(0, max_overdrawn_minor);
+        currencyIds[index] = currency.getId();
+        return index;
+    }
+
+    private void grow() {
+        int capacity = balances.length + (balances.length >> 1) + 1;
+        balances = Arrays.copyOf(balances, capacity);
+        maxOverdrawn = Arrays.copyOf(maxOverdrawn, capacity);
+        currencyIds = Arrays.copyOf(currencyIds, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Returns an IAccount backed by the account at index, changes through the view go straight into the store
+     * */
+    public AccountView view(int index) {
+        checkIndex(index);
+        return new AccountView(this, index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    public long getBalanceMinor(int index) {
+        checkIndex(index);
+        return balances[index];
+    }
+
+    public long getMaxOverdrawnMinor(int index) {
+        checkIndex(index);
+        return maxOverdrawn[index];
+    }
+
+    public CurrencyCode getCurrency(int index) {
+        checkIndex(index);
+        return CurrencyCode.byId(currencyIds[index]);
+    }
+
+    public void setBalanceMinor(int index, long balance) {
+        checkIndex(index);
+        if (balance >= -maxOverdrawn[index]) {
+            balances[index] = balance;
+        }
+    }
+
+    public void setMaxOverdrawnMinor(int index, long max_overdrawn) {
+        checkIndex(index);
+        maxOverdrawn[index] = Math.max(0, max_overdrawn);
+    }
+
+    /*
+     * Same rules as LongAccount.withdrawMinor, returns the balance after the withdrawal
+     * */
+    public long withdrawMinor(int index, long requestedAmount) {
+        checkIndex(index);
+        long balance = balances[index];
+        if (requestedAmount <= 0) {
+            return balance;
+        }
+        long newBalance;
+        try {
+            newBalance = MinorUnits.subtract(balance, requestedAmount);
+        } catch (ArithmeticException e) {
+            return balance; // Below Long.MIN_VALUE, so below any limit as well
+        }
+        if (newBalance >= -maxOverdrawn[index]) {
+            balances[index] = newBalance;
+        }
+        return balances[index];
+    }
+
+    /*
+     * Same rules as LongAccount.depositMinor, returns the balance after the deposit
+     * */
+    public long depositMinor(int index, long amount_to_deposit) {
+        checkIndex(index);
+        if (amount_to_deposit > 0) {
+            setBalanceMinor(index, MinorUnits.add(balances[index], amount_to_deposit));
+        }
+        return balances[index];
+    }
+
+    /*
+     * Same rules as LongAccount.convertToCurrency
+     * */
+    public boolean convertToCurrency(int index, CurrencyCode currency, BigDecimal rate) {
+        checkIndex(index);
+        if (rate.signum() <= 0) {
+            return false;
+        }
+        int scale = CurrencyCode.byId(currencyIds[index]).getScale();
+        long newMaxOverdrawn = MinorUnits.convert(maxOverdrawn[index], scale, rate, currency.getScale());
+        long newBalance = MinorUnits.convert(balances[index], scale, rate, currency.getScale());
+        currencyIds[index] = currency.getId();
+        setMaxOverdrawnMinor(index, newMaxOverdrawn);
+        setBalanceMinor(index, newBalance);
+        return true;
+    }
+
+    /*
+     * Sum of all balances in the currency, in minor units
+     * */
+    public long totalBalanceMinor(CurrencyCode currency) {
+        int id = currency.getId();
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (currencyIds[i] == id) {
+                total = MinorUnits.add(total, balances[i]);
+            }
+        }
+        return total;
+    }
+
+    /*
+     * How much all accounts in the currency are "in the red" together (sum of negative balances as a positive number),
+     * in minor units
+     * */
+    public long totalExposureMinor(CurrencyCode currency) {
+        int id = currency.getId();
+        long exposure = 0;
+        for (int i = 0; i < size; i++) {
+            long balance = balances[i];
+            if (balance < 0 && currencyIds[i] == id) {
+                exposure = MinorUnits.subtract(exposure, balance);
+            }
+        }
+        return exposure;
+    }
+
+    public BigDecimal totalExposure(CurrencyCode currency) {
+        return MinorUnits.toDecimal(totalExposureMinor(currency), currency.getScale());
+    }
+
+    /*
+     * Number of accounts with a negative balance, in any currency
+     * */
+    public int countNegative() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (balances[i] < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Indexes of all accounts with a negative balance, in any currency
+     * */
+    public int[] negativeBalanceIndexes() {
+        int[] result = new int[countNegative()];
+        int n = 0;
+        for (int i = 0; i < size && n < result.length; i++) {
+            if (balances[i] < 0) {
+                result[n++] = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * IAccount for one account in the store, only holds the store and the index
+     */
+    public static final class AccountView implements IAccount {
+
+        private final AccountStore store;
+        private final int index;
+
+        private AccountView(AccountStore store, int index) {
+            this.store = store;
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        private int scale() {
+            return getCurrencyCode().getScale();
+        }
+
+        @Override
+        public BigDecimal withdraw(BigDecimal requested_amount) {
+            if (requested_amount.signum() > 0) {
+                store.withdrawMinor(index, MinorUnits.toMinor(requested_amount, scale()));
+            }
+            return getBalance();
+        }
+
+        @Override
+        public BigDecimal withdrawAll() {
+            long balance = store.getBalanceMinor(index);
+            if (balance > 0) {
+                store.withdrawMinor(index, balance);
+            }
+            return getBalance();
+        }
+
+        @Override
+        public BigDecimal deposit(BigDecimal amount_to_deposit) {
+            if (amount_to_deposit.signum() > 0) {
+                store.depositMinor(index, MinorUnits.toMinor(amount_to_deposit, scale()));
+            }
+            return getBalance();
+        }
+
+        @Override
+        public BigDecimal getBalance() {
+            return MinorUnits.toDecimal(store.getBalanceMinor(index), scale());
+        }
+
+        @Override
+        public void setBalance(BigDecimal balance) {
+            store.setBalanceMinor(index, MinorUnits.toMinor(balance, scale()));
+        }
+
+        @Override
+        public BigDecimal getMaxOverdrawn() {
+            return MinorUnits.toDecimal(store.getMaxOverdrawnMinor(index), scale());
+        }
+
+        @Override
+        public String getCurrency() {
+            return getCurrencyCode().getCode();
+        }
+
+        @Override
+        public CurrencyCode getCurrencyCode() {
+            return store.getCurrency(index);
+        }
+
+        @Override
+        public boolean convertToCurrency(String currency_code, double rate) {
+            if (rate <= 0) {
+                return false;
+            }
+            return convertToCurrency(currency_code, new BigDecimal(Double.toString(rate)));
+        }
+
+        @Override
+        public boolean convertToCurrency(String currency_code, BigDecimal rate) {
+            if (rate.signum() <= 0) {
+                return false;
+            }
+            return store.convertToCurrency(index, CurrencyCode.of(currency_code), rate);
+        }
+
+        @Override
+        public void TransferToAccount(IAccount to_account) {
+            long balance = store.getBalanceMinor(index);
+            if (balance <= 0) {
+                return; // Can't transfer negative funds
+            } else if (getCurrencyCode() != to_account.getCurrencyCode()) {
+                return; // Can't transfer to an account with different currency
+            }
+            if (to_account instanceof AccountView && ((AccountView) to_account).store == store) {
+                store.depositMinor(((AccountView) to_account).index, balance);
+            } else {
+                to_account.deposit(getBalance());
+            }
+            store.setBalanceMinor(index, 0);
+        }
+    }
+}
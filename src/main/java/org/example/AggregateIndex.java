@@ -0,0 +1,173 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Running totals per currency over a set of IndexedAccounts, kept up to date by the accounts as they change,
+ * so "total balance in EUR" or "how many accounts are overdrawn" is answered without looking at any account.
+ * Per currency it keeps the number of accounts, the total balance, the number of overdrawn accounts (balance below 0),
+ * how much they are overdrawn in total, and the remaining overdraft headroom:
+ * the sum over all accounts of how much more they can go below zero (max_overdrawn + balance if negative, else max_overdrawn).
+ * Reads are O(1) per currency. Each currency is updated under its own lock, so accounts in different currencies
+ * never wait on each other.
+ */
+public class AggregateIndex {
+
+    /**
+     * Aggregates of one currency at one point in time
+     */
+    public record Totals(CurrencyCode currency, long accounts, BigDecimal balance, long overdrawn,
+                         BigDecimal overdrawnAmount, BigDecimal headroom) {
+    }
+
+    /**
+     * The mutable totals of one currency, guarded by its own monitor
+     */
+    private static final class Aggregate {
+
+        private final CurrencyCode currency;
+        private long accounts;
+        private BigDecimal balance = BigDecimal.ZERO;
+        private long overdrawn;
+        private BigDecimal overdrawnAmount = BigDecimal.ZERO;
+        private BigDecimal headroom = BigDecimal.ZERO;
+
+        Aggregate(CurrencyCode currency) {
+            this.currency = currency;
+        }
+
+        synchronized void add(BigDecimal account_balance, BigDecimal max_overdrawn, int sign) {
+            accounts += sign;
+            balance = sign > 0 ? balance.add(account_balance) : balance.subtract(account_balance);
+            BigDecimal accountHeadroom = max_overdrawn;
+            if (account_balance.signum() < 0) {
+                overdrawn += sign;
+                overdrawnAmount = sign > 0 ? overdrawnAmount.subtract(account_balance) : overdrawnAmount.add(account_balance);
+                accountHeadroom = max_overdrawn.add(account_balance);
+            }
+            headroom = sign > 0 ? headroom.add(accountHeadroom) : headroom.subtract(accountHeadroom);
+        }
+
+        synchronized void replace(BigDecimal old_balance, BigDecimal old_max_overdrawn,
+                                  BigDecimal new_balance, BigDecimal new_max_overdrawn) {
+            add(old_balance, old_max_overdrawn, -1);
+            add(new_balance, new_max_overdrawn, 1);
+        }
+
+        synchronized Totals totals() {
+            return new Totals(currency, accounts, balance, overdrawn, overdrawnAmount, headroom);
+        }
+    }
+
+    /**
+     * Indexed by CurrencyCode id, grown when an account in a new currency shows up
+     */
+    private volatile Aggregate[] byCurrency = new Aggregate[0];
+
+    private Aggregate aggregate(CurrencyCode currency) {
+        Aggregate[] table = byCurrency;
+        int id = currency.getId();
+        if (id < table.length && table[id] != null) {
+            return table[id];
+        }
+        return create(currency);
+    }
+
+    private synchronized Aggregate create(CurrencyCode currency) {
+        Aggregate[] table = byCurrency;
+        int id = currency.getId();
+        if (id >= table.length) {
+            table = Arrays.copyOf(table, Math.max(id + 1, CurrencyCode.count()));
+        } else if (table[id] != null) {
+            return table[id];
+        } else {
+            table = table.clone();
+        }
+        table[id] = new Aggregate(currency);
+        byCurrency = table;
+        return table[id];
+    }
+
+    /*
+     * Adds an account with the given state, called when an IndexedAccount is created
+     * */
+    void add(CurrencyCode currency, BigDecimal balance, BigDecimal max_overdrawn) {
+        aggregate(currency).add(balance, max_overdrawn, 1);
+    }
+
+    void remove(CurrencyCode currency, BigDecimal balance, BigDecimal max_overdrawn) {
+        aggregate(currency).add(balance, max_overdrawn, -1);
+    }
+
+    /*
+     * Moves an account from its old state to its new one
+     * */
+    void update(CurrencyCode old_currency, BigDecimal old_balance, BigDecimal old_max_overdrawn,
+                CurrencyCode new_currency, BigDecimal new_balance, BigDecimal new_max_overdrawn) {
+        if (old_currency == new_currency) {
+            if (old_balance.compareTo(new_balance) != 0 || old_max_overdrawn.compareTo(new_max_overdrawn) != 0) {
+                aggregate(old_currency).replace(old_balance, old_max_overdrawn, new_balance, new_max_overdrawn);
+            }
+        } else {
+            remove(old_currency, old_balance, old_max_overdrawn);
+            add(new_currency, new_balance, new_max_overdrawn);
+        }
+    }
+
+    /*
+     * The totals of one currency, all zero if no indexed account has it
+     * */
+    public Totals get(CurrencyCode currency) {
+        Aggregate[] table = byCurrency;
+        int id = currency.getId();
+        if (id < table.length && table[id] != null) {
+            return table[id].totals();
+        }
+        return new Totals(currency, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    public Totals get(String currency) {
+        return get(CurrencyCode.of(currency));
+    }
+
+    public BigDecimal getTotalBalance(String currency) {
+        return get(currency).balance();
+    }
+
+    public long getOverdrawnCount(String currency) {
+        return get(currency).overdrawn();
+    }
+
+    public BigDecimal getHeadroom(String currency) {
+        return get(currency).headroom();
+    }
+
+    /*
+     * Overdrawn accounts in all currencies, O(number of currencies)
+     * */
+    public long getOverdrawnCount() {
+        long count = 0;
+        for (Aggregate aggregate : byCurrency) {
+            if (aggregate != null) {
+                count += aggregate.totals().overdrawn();
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Totals of every currency that has or had indexed accounts
+     * */
+    public List<Totals> getAll() {
+        List<Totals> all = new ArrayList<>();
+        for (Aggregate aggregate : byCurrency) {
+            if (aggregate != null) {
+                all.add(aggregate.totals());
+            }
+        }
+        return all;
+    }
+}
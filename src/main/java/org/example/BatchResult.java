@@ -0,0 +1,50 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.BitSet;
+
+/**
+ * Result of applying a batch of postings to one account.
+ * Holds one bit per posting (set if the posting was applied) and the balance after the whole batch.
+ */
+public class BatchResult {
+
+    private final BitSet accepted;
+    private final int size;
+    private final BigDecimal finalBalance;
+
+    BatchResult(BitSet accepted, int size, BigDecimal finalBalance) {
+        this.accepted = accepted;
+        this.size = size;
+        this.finalBalance = finalBalance;
+    }
+
+    /*
+     * Returns true if posting number index was applied, false if it was rejected
+     * */
+    public boolean isAccepted(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return accepted.get(index);
+    }
+
+    public int acceptedCount() {
+        return accepted.cardinality();
+    }
+
+    public int rejectedCount() {
+        return size - acceptedCount();
+    }
+
+    /*
+     * Number of postings in the batch
+     * */
+    public int size() {
+        return size;
+    }
+
+    public BigDecimal getFinalBalance() {
+        return finalBalance;
+    }
+}
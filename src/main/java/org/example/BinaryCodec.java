@@ -0,0 +1,66 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of amounts and currencies shared by TransactionJournal and AccountSnapshot.
+ * A BigDecimal is written as int scale and a kind byte, followed by the unscaled value as a long (kind 0)
+ * or, if it doesn't fit in a long, as a short length and the two's complement bytes (kind 1).
+ * A currency is written as its three ASCII letters.
+ */
+final class BinaryCodec {
+
+    static final int CURRENCY_SIZE = 3;
+
+    private BinaryCodec() {
+    }
+
+    /*
+     * Number of bytes putDecimal will write for the value
+     * */
+    static int decimalSize(BigDecimal value) {
+        if (value.precision() < 19) {
+            return Integer.BYTES + 1 + Long.BYTES;
+        }
+        return Integer.BYTES + 1 + Short.BYTES + value.unscaledValue().bitLength() / 8 + 1;
+    }
+
+    static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        buffer.putInt(value.scale());
+        if (value.precision() < 19) {
+            buffer.put((byte) 0);
+            buffer.putLong(value.unscaledValue().longValue());
+        } else {
+            byte[] bytes = value.unscaledValue().toByteArray();
+            buffer.put((byte) 1);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    static BigDecimal getDecimal(ByteBuffer buffer) {
+        int scale = buffer.getInt();
+        if (buffer.get() == 0) {
+            return BigDecimal.valueOf(buffer.getLong(), scale);
+        }
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    static void putCurrency(ByteBuffer buffer, CurrencyCode currency) {
+        String code = currency.getCode();
+        for (int i = 0; i < CURRENCY_SIZE; i++) {
+            buffer.put((byte) code.charAt(i));
+        }
+    }
+
+    static String getCurrency(ByteBuffer buffer) {
+        byte[] bytes = new byte[CURRENCY_SIZE];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
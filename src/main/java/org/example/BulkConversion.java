@@ -0,0 +1,298 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+/**
+ * Converts every account in a list that matches a filter (e.g. all accounts in one currency) to another currency,
+ * in parallel on a ForkJoinPool.
+ * Each account is converted with its own convertToCurrency, so balances and max_overdrawn are rescaled and rounded
+ * exactly as a single conversion would.
+ *
+ * The list is split into fixed chunks, and the conversion remembers which chunks are done.
+ * It can be cancelled and run again, and with a checkpoint file it can be resumed after a crash,
+ * as long as the list has the same accounts in the same order. A chunk that was interrupted halfway is converted again,
+ * so the filter should exclude accounts that are already converted (forCurrency does), or they are converted twice.
+ */
+public class BulkConversion {
+
+    /**
+     * Called by the worker threads after every chunk, must be thread-safe
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int completed_chunks, int chunk_count, long converted);
+    }
+
+    static final int DEFAULT_CHUNK_SIZE = 4096;
+    private static final int CHECKPOINT_MAGIC = 0x42434E56; // "BCNV"
+
+    private final List<? extends IAccount> accounts;
+    private final Predicate<? super IAccount> filter;
+    private final String currency;
+    private final BigDecimal rate;
+    private final int chunkSize;
+    private final int chunkCount;
+    /**
+     * One bit per chunk, set when the chunk is converted
+     */
+    private final AtomicLongArray completed;
+    private final AtomicInteger completedChunks = new AtomicInteger();
+    private final AtomicLong converted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile ProgressListener listener;
+    /**
+     * Where and how often to save the completed chunks, null if no checkpoints are written.
+     * One volatile field, so the worker threads always see a file and interval that belong together.
+     */
+    private volatile Checkpoint checkpoint;
+
+    private record Checkpoint(Path file, int every) {
+    }
+
+    public BulkConversion(List<? extends IAccount> accounts, Predicate<? super IAccount> filter, String to_currency, BigDecimal rate) {
+        this(accounts, filter, to_currency, rate, DEFAULT_CHUNK_SIZE);
+    }
+
+    public BulkConversion(List<? extends IAccount> accounts, Predicate<? super IAccount> filter, String to_currency,
+                          BigDecimal rate, int chunk_size) {
+        if (rate.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("rate must be positive: " + rate);
+        } else if (chunk_size <= 0) {
+            throw new IllegalArgumentException("chunk_size must be positive");
+        }
+        this.accounts = accounts;
+        this.filter = filter;
+        this.currency = CurrencyCode.of(to_currency).getCode();
+        this.rate = rate;
+        this.chunkSize = chunk_size;
+        this.chunkCount = (int) ((accounts.size() + (long) chunk_size - 1) / chunk_size);
+        this.completed = new AtomicLongArray((chunkCount + 63) / 64);
+    }
+
+    /*
+     * Converts all accounts in from_currency, using the rate of the ExchangeRate
+     * */
+    public static BulkConversion forRate(List<? extends IAccount> accounts, ExchangeRate rate) {
+        CurrencyCode from = CurrencyCode.of(rate.getFromCurrency());
+        return new BulkConversion(accounts, account -> account.getCurrencyCode() == from, rate.getToCurrency(), rate.getRate());
+    }
+
+    /*
+     * Converts all accounts in from_currency
+     * */
+    public static BulkConversion forCurrency(List<? extends IAccount> accounts, String from_currency, String to_currency, BigDecimal rate) {
+        CurrencyCode from = CurrencyCode.of(from_currency);
+        return new BulkConversion(accounts, account -> account.getCurrencyCode() == from, to_currency, rate);
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /*
+     * Saves the completed chunks to the file after every every_chunks chunks and when a run ends
+     * */
+    public void checkpointTo(Path file, int every_chunks) {
+        if (every_chunks <= 0) {
+            throw new IllegalArgumentException("every_chunks must be positive");
+        }
+        this.checkpoint = new Checkpoint(file, every_chunks);
+    }
+
+    /*
+     * Runs on the common pool, see run(ForkJoinPool)
+     * */
+    public boolean run() {
+        return run(ForkJoinPool.commonPool());
+    }
+
+    /*
+     * Converts the chunks that aren't done yet and waits until they are.
+     * Returns true if every chunk is converted, false if the conversion was cancelled (run it again to continue).
+     * */
+    public boolean run(ForkJoinPool pool) {
+        cancelled = false;
+        if (chunkCount > 0) {
+            pool.invoke(new ChunkRange(0, chunkCount));
+        }
+        Checkpoint current = checkpoint;
+        if (current != null) {
+            saveCheckpoint(current.file());
+        }
+        return isComplete();
+    }
+
+    /*
+     * Stops a running conversion after the chunks that are being converted right now
+     * */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isComplete() {
+        return completedChunks.get() == chunkCount;
+    }
+
+    public boolean isChunkComplete(int chunk) {
+        return (completed.get(chunk >>> 6) & (1L << chunk)) != 0;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks.get();
+    }
+
+    /*
+     * Share of chunks done, from 0 to 1
+     * */
+    public double getProgress() {
+        return chunkCount == 0 ? 1 : (double) completedChunks.get() / chunkCount;
+    }
+
+    /*
+     * Accounts converted so far, in this process (after loading a checkpoint, the accounts of earlier runs are not counted)
+     * */
+    public long getConverted() {
+        return converted.get();
+    }
+
+    /*
+     * Accounts that matched the filter but whose convertToCurrency returned false
+     * */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void convertChunk(int chunk) {
+        int end = (int) Math.min(accounts.size(), (long) (chunk + 1) * chunkSize);
+        long convertedHere = 0;
+        long rejectedHere = 0;
+        for (int i = chunk * chunkSize; i < end; i++) {
+            IAccount account = accounts.get(i);
+            if (filter.test(account)) {
+                if (account.convertToCurrency(currency, rate)) {
+                    convertedHere++;
+                } else {
+                    rejectedHere++;
+                }
+            }
+        }
+        converted.addAndGet(convertedHere);
+        rejected.addAndGet(rejectedHere);
+        completed.getAndAccumulate(chunk >>> 6, 1L << chunk, (word, bit) -> word | bit);
+        int done = completedChunks.incrementAndGet();
+        ProgressListener current = listener;
+        if (current != null) {
+            current.onProgress(done, chunkCount, converted.get());
+        }
+        Checkpoint saveTo = checkpoint;
+        if (saveTo != null && done % saveTo.every() == 0) {
+            saveCheckpoint(saveTo.file());
+        }
+    }
+
+    /**
+     * Splits a range of chunks in halves until it is one chunk
+     */
+    private final class ChunkRange extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        ChunkRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled) {
+                return;
+            }
+            if (to - from == 1) {
+                if (!isChunkComplete(from)) {
+                    convertChunk(from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkRange(from, middle), new ChunkRange(middle, to));
+        }
+    }
+
+    /*
+     * Writes the completed chunks to the file, next to it first and then moved into place
+     * */
+    public synchronized void saveCheckpoint(Path file) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeUTF(currency);
+            out.writeUTF(rate.toString());
+            out.writeInt(chunkSize);
+            out.writeInt(chunkCount);
+            for (int i = 0; i < completed.length(); i++) {
+                out.writeLong(completed.get(i));
+            }
+            out.flush();
+            // On disk before it is moved into place, so a crash can't leave an empty checkpoint behind
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Marks the chunks completed in the checkpoint as done, so run() skips them.
+     * Throws IOException if the file is not a checkpoint of the same conversion (currency, rate and chunks).
+     * */
+    public synchronized void loadCheckpoint(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("Not a conversion checkpoint: " + file);
+            }
+            if (!in.readUTF().equals(currency) || new BigDecimal(in.readUTF()).compareTo(rate) != 0
+                    || in.readInt() != chunkSize || in.readInt() != chunkCount) {
+                throw new IOException("Checkpoint is for a different conversion: " + file);
+            }
+            int done = 0;
+            for (int i = 0; i < completed.length(); i++) {
+                long word = in.readLong();
+                completed.set(i, word);
+                done += Long.bitCount(word);
+            }
+            completedChunks.set(done);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs AccountCommands against the accounts of a ShardedLedger.
+ * Every account belongs to one shard with its own writer thread,
+ * so all commands for one account run one at a time and in the order they were submitted without any global lock,
+ * and the accounts themselves are plain (not thread-safe) Accounts.
+ * Transfers between accounts on different shards are passed between the shards by the ledger.
+ *
+ * Every command completes with one reply line: "OK balance", "REJECTED reason" (a RejectReason) or "ERROR message".
+ */
+public class CommandProcessor implements AutoCloseable {
+
+    private final ShardedLedger ledger;
+
+    public CommandProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /*
+     * The number of shards is rounded up to a power of two
+     * */
+    public CommandProcessor(int shard_count) {
+        this.ledger = new ShardedLedger(shard_count);
+    }
+
+    public int getShardCount() {
+        return ledger.getShardCount();
+    }
+
+    /*
+     * Queues the command on the shard of its account, the future completes with the reply line
+     * */
+    public CompletableFuture<String> submit(AccountCommand command) {
+        if (command.type() == AccountCommand.Type.TRANSFER) {
+            return ledger.transfer(command.account(), command.target()).handle((result, failure) -> {
+                if (failure != null) {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    return CompletableFuture.completedFuture(error(cause.getMessage()));
+                } else if (result.isSuccess()) {
+                    return ledger.submit(command.account(), accounts -> ok(accounts.get(command.account()).getBalance()));
+                }
+                return CompletableFuture.completedFuture(rejected(switch (result) {
+                    case INVALID_AMOUNT -> RejectReason.INVALID_AMOUNT;
+                    case NO_FUNDS -> RejectReason.NO_FUNDS;
+                    case SAME_ACCOUNT -> RejectReason.SAME_ACCOUNT;
+                    case CURRENCY_MISMATCH -> RejectReason.CURRENCY_MISMATCH;
+                    case INSUFFICIENT_FUNDS -> RejectReason.INSUFFICIENT_FUNDS;
+                    case DEPOSIT_REJECTED -> RejectReason.DEPOSIT_REJECTED;
+                    case SUCCESS -> throw new IllegalStateException("Successful transfer can't be rejected");
+                }));
+            }).thenCompose(reply -> reply);
+        }
+        return ledger.submit(command.account(), accounts -> run(command, accounts));
+    }
+
+    /*
+     * Runs the command and waits for the reply
+     * */
+    public String execute(AccountCommand command) {
+        return submit(command).join();
+    }
+
+    private static String run(AccountCommand command, Map<Long, IAccount> accounts) {
+        try {
+            if (command.type() == AccountCommand.Type.CREATE) {
+                Account account = new Account(command.amount(), command.currency(), command.max_overdrawn());
+                if (accounts.putIfAbsent(command.account(), account) != null) {
+                    return error("Account " + command.account() + " already exists");
+                }
+                return ok(account.getBalance());
+            }
+            IAccount account = accounts.get(command.account());
+            if (account == null) {
+                return error("No account with id " + command.account());
+            }
+            BigDecimal before = account.getBalance();
+            switch (command.type()) {
+                case DEPOSIT -> {
+                    BigDecimal balance = account.deposit(command.amount());
+                    if (balance.compareTo(before) != 0) {
+                        return ok(balance);
+                    }
+                    return rejected(command.amount().signum() <= 0 ? RejectReason.INVALID_AMOUNT : RejectReason.DEPOSIT_REJECTED);
+                }
+                case WITHDRAW -> {
+                    BigDecimal balance = account.withdraw(command.amount());
+                    if (balance.compareTo(before) != 0) {
+                        return ok(balance);
+                    }
+                    return rejected(command.amount().signum() <= 0 ? RejectReason.INVALID_AMOUNT : RejectReason.INSUFFICIENT_FUNDS);
+                }
+                case WITHDRAW_ALL -> {
+                    return before.signum() > 0 ? ok(account.withdrawAll()) : rejected(RejectReason.NO_FUNDS);
+                }
+                case CONVERT -> {
+                    return account.convertToCurrency(command.currency(), command.rate())
+                            ? ok(account.getBalance()) : rejected(RejectReason.INVALID_RATE);
+                }
+                case BALANCE -> {
+                    return ok(before);
+                }
+                default -> throw new IllegalStateException("Unexpected command " + command.type());
+            }
+        } catch (RuntimeException e) {
+            return error(e.getMessage());
+        }
+    }
+
+    private static String ok(BigDecimal balance) {
+        return "OK " + balance.toPlainString();
+    }
+
+    private static String rejected(RejectReason reason) {
+        return "REJECTED " + reason;
+    }
+
+    private static String error(String message) {
+        return "ERROR " + message;
+    }
+
+    /*
+     * Waits for the commands already submitted, then stops the shard threads
+     * */
+    @Override
+    public void close() {
+        ledger.close();
+    }
+}
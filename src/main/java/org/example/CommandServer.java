@@ -0,0 +1,134 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Text front end for a CommandProcessor: reads one AccountCommand per line and writes one reply line per command.
+ * Blank lines and lines starting with # are skipped, a line that isn't a valid command gets an "ERROR" reply.
+ * Commands come from a file (process) or from clients connecting to a socket on the loopback interface (listen).
+ * Every client is served by its own virtual thread, which runs the client's commands in order
+ * and waits for each reply, so a hundred thousand mostly idle clients don't need a hundred thousand platform threads.
+ */
+public class CommandServer implements AutoCloseable {
+
+    /**
+     * Longest wait between two failed accepts in a row
+     */
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final CommandProcessor processor;
+    private final ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> connected = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket serverSocket;
+
+    public CommandServer(CommandProcessor processor) {
+        this.processor = processor;
+    }
+
+    /*
+     * Runs every command read from in and writes the replies to out, returns the number of commands
+     * */
+    public long process(BufferedReader in, Writer out) throws IOException {
+        long count = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String reply;
+            try {
+                reply = processor.execute(AccountCommand.parse(trimmed));
+            } catch (IllegalArgumentException e) {
+                reply = "ERROR " + e.getMessage();
+            }
+            out.write(reply);
+            out.write('\n');
+            count++;
+            // Pipelined commands are answered in one write, an interactive client gets its reply right away
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+    /*
+     * Starts accepting clients on the loopback interface, port 0 picks a free port.
+     * Returns the port it listens on.
+     * */
+    public int listen(int port) throws IOException {
+        ServerSocket socket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.serverSocket = socket;
+        Thread acceptor = new Thread(() -> acceptLoop(socket), "command-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return socket.getLocalPort();
+    }
+
+    private void acceptLoop(ServerSocket socket) {
+        long backoffMillis = 0;
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                clients.execute(() -> serve(client));
+                backoffMillis = 0;
+            } catch (IOException e) {
+                if (socket.isClosed()) {
+                    return;
+                }
+                // Reported like any other unexpected failure of the thread, but the server keeps accepting.
+                // It waits longer after each failure in a row, so a lasting one (e.g. out of file descriptors) doesn't spin.
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                backoffMillis = Math.min(Math.max(10, backoffMillis * 2), MAX_ACCEPT_BACKOFF_MILLIS);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        connected.add(client);
+        try (client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8)) {
+            process(in, out);
+        } catch (IOException e) {
+            // The client went away, nothing to answer
+        } finally {
+            connected.remove(client);
+        }
+    }
+
+    /*
+     * Stops accepting clients, clients that are connected are disconnected
+     * */
+    @Override
+    public void close() throws IOException {
+        ServerSocket socket = serverSocket;
+        if (socket != null) {
+            socket.close();
+        }
+        for (Socket client : connected) {
+            client.close();
+        }
+        clients.shutdownNow();
+    }
+}
@@ -0,0 +1,233 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe Account without locks.
+ * Balance, max_overdrawn and currency live in one immutable State that is replaced with compare-and-set,
+ * so every update is checked against the state it replaces and the balance can never drop below -max_overdrawn,
+ * no matter how many threads withdraw at the same time.
+ */
+public class ConcurrentAccount implements IAccount {
+
+    /**
+     * Immutable snapshot of the account, a new one is installed on every change
+     */
+    private record State(BigDecimal balance, CurrencyCode currency, BigDecimal max_overdrawn) {
+
+        boolean allows(BigDecimal newBalance) {
+            return newBalance.compareTo(max_overdrawn.negate()) >= 0;
+        }
+
+        State withBalance(BigDecimal newBalance) {
+            return new State(newBalance, currency, max_overdrawn);
+        }
+    }
+
+    private final AtomicReference<State> state;
+
+    public ConcurrentAccount() {
+        this(BigDecimal.ZERO, "SEK", BigDecimal.ZERO);
+    }
+
+    public ConcurrentAccount(BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
+        if (max_overdrawn.compareTo(BigDecimal.ZERO) <= 0) {
+            max_overdrawn = BigDecimal.ZERO;
+        }
+        this.state = new AtomicReference<>(new State(starting_balance, CurrencyCode.of(currency), max_overdrawn));
+    }
+
+    public BigDecimal getMaxOverdrawn() {
+        return state.get().max_overdrawn();
+    }
+
+    public void setMaxOverdrawn(BigDecimal max_overdrawn) {
+        BigDecimal newMax = max_overdrawn.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : max_overdrawn;
+        state.updateAndGet(s -> new State(s.balance(), s.currency(), newMax));
+    }
+
+    public String getCurrency() {
+        return state.get().currency().getCode();
+    }
+
+    public CurrencyCode getCurrencyCode() {
+        return state.get().currency();
+    }
+
+    public void setCurrency(String currency) {
+        CurrencyCode newCurrency = CurrencyCode.of(currency);
+        state.updateAndGet(s -> new State(s.balance(), newCurrency, s.max_overdrawn()));
+    }
+
+    public BigDecimal getBalance() {
+        return state.get().balance();
+    }
+
+    @Override
+    public void setBalance(BigDecimal balance) {
+        State current;
+        do {
+            current = state.get();
+            if (!current.allows(balance)) {
+                return;
+            }
+        } while (!state.compareAndSet(current, current.withBalance(balance)));
+    }
+
+    @Override
+    public BigDecimal withdraw(BigDecimal requestedAmount) {
+        if (requestedAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            return getBalance();
+        }
+        State current;
+        State next;
+        do {
+            current = state.get();
+            BigDecimal newBalance = current.balance().subtract(requestedAmount);
+            if (!current.allows(newBalance)) {
+                return current.balance();
+            }
+            next = current.withBalance(newBalance);
+        } while (!state.compareAndSet(current, next));
+        return next.balance();
+    }
+
+    @Override
+    // Decided by the compare-and-set itself, so the answer is right even while other threads change the balance
+    public boolean tryWithdraw(BigDecimal requestedAmount) {
+        if (requestedAmount.compareTo(BigDecimal.ZERO) <= 0) {
+            return false;
+        }
+        State current;
+        BigDecimal newBalance;
+        do {
+            current = state.get();
+            newBalance = current.balance().subtract(requestedAmount);
+            if (!current.allows(newBalance)) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, current.withBalance(newBalance)));
+        return true;
+    }
+
+    @Override
+    public BigDecimal deposit(BigDecimal amount_to_deposit) {
+        if (amount_to_deposit.compareTo(BigDecimal.ZERO) <= 0) {
+            return getBalance();
+        }
+        State current;
+        State next;
+        do {
+            current = state.get();
+            BigDecimal newBalance = current.balance().add(amount_to_deposit);
+            if (!current.allows(newBalance)) {
+                return current.balance();
+            }
+            next = current.withBalance(newBalance);
+        } while (!state.compareAndSet(current, next));
+        return next.balance();
+    }
+
+    @Override
+    public boolean tryDeposit(BigDecimal amount_to_deposit) {
+        if (amount_to_deposit.compareTo(BigDecimal.ZERO) <= 0) {
+            return false;
+        }
+        State current;
+        BigDecimal newBalance;
+        do {
+            current = state.get();
+            newBalance = current.balance().add(amount_to_deposit);
+            if (!current.allows(newBalance)) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, current.withBalance(newBalance)));
+        return true;
+    }
+
+    @Override
+    public boolean convertToCurrency(String currencyCode, double rate) {
+        if (rate <= 0) {
+            return false;
+        }
+        return convertToCurrency(currencyCode, new BigDecimal(Double.toString(rate)));
+    }
+
+    @Override
+    public boolean convertToCurrency(String currencyCode, BigDecimal decimalRate) {
+        if (decimalRate.compareTo(BigDecimal.ZERO) <= 0) {
+            return false;
+        }
+        CurrencyCode newCurrency = CurrencyCode.of(currencyCode);
+        state.updateAndGet(s -> {
+            BigDecimal newMax = Account.withoutTrailingZeros(s.max_overdrawn().multiply(decimalRate));
+            BigDecimal newBalance = Account.withoutTrailingZeros(s.balance().multiply(decimalRate));
+            State converted = new State(s.balance(), newCurrency, newMax);
+            return converted.allows(newBalance) ? converted.withBalance(newBalance) : converted;
+        });
+        return true;
+    }
+
+    @Override
+    // The balance is taken out in one compare-and-set, so concurrent withdrawals can't spend the same money
+    // that is being transferred. If the receiving account rejects the deposit (or throws) the money is put back.
+    public void TransferToAccount(IAccount to_account) {
+        CurrencyCode targetCurrency = to_account.getCurrencyCode();
+        State current;
+        do {
+            current = state.get();
+            if (current.balance().compareTo(BigDecimal.ZERO) <= 0) {
+                return; // Can't transfer negative funds
+            } else if (current.currency() != targetCurrency) {
+                return; // Can't transfer to an account with different currency
+            }
+        } while (!state.compareAndSet(current, current.withBalance(BigDecimal.ZERO)));
+
+        BigDecimal amount = current.balance();
+        boolean deposited = false;
+        try {
+            if (to_account instanceof ConcurrentAccount) {
+                deposited = ((ConcurrentAccount) to_account).tryDeposit(amount, current.currency());
+            } else {
+                deposited = to_account.tryDeposit(amount);
+            }
+        } finally {
+            if (!deposited) {
+                state.updateAndGet(s -> s.withBalance(s.balance().add(amount)));
+            }
+        }
+    }
+
+    /*
+     * Deposits the amount only if the account still holds the expected currency.
+     * Returns false if nothing was deposited.
+     * */
+    private boolean tryDeposit(BigDecimal amount, CurrencyCode expectedCurrency) {
+        State current;
+        State next;
+        do {
+            current = state.get();
+            BigDecimal newBalance = current.balance().add(amount);
+            if (current.currency() != expectedCurrency || !current.allows(newBalance)) {
+                return false;
+            }
+            next = current.withBalance(newBalance);
+        } while (!state.compareAndSet(current, next));
+        return true;
+    }
+
+    @Override
+    public BigDecimal withdrawAll() {
+        State current;
+        State next;
+        do {
+            current = state.get();
+            if (current.balance().compareTo(BigDecimal.ZERO) <= 0) {
+                return current.balance();
+            }
+            next = current.withBalance(current.balance().subtract(current.balance()));
+        } while (!state.compareAndSet(current, next));
+        return next.balance();
+    }
+}
@@ -0,0 +1,132 @@
+package org.example;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned ISO 4217 currency code.
+ * There is exactly one CurrencyCode instance per code, so currencies can be compared with == (or by id),
+ * and each code gets a small int id that can be stored instead of a reference.
+ * The number of decimals (minor unit scale) of every currency is kept here.
+ */
+public final class CurrencyCode {
+
+    private static final Map<String, CurrencyCode> BY_CODE = new ConcurrentHashMap<>();
+    private static volatile CurrencyCode[] byId = new CurrencyCode[0];
+
+    public static final CurrencyCode SEK = of("SEK");
+    public static final CurrencyCode EUR = of("EUR");
+    public static final CurrencyCode USD = of("USD");
+
+    private final String code;
+    private final int id;
+    private final int scale;
+
+    private CurrencyCode(String code, int id, int scale) {
+        this.code = code;
+        this.id = id;
+        this.scale = scale;
+    }
+
+    /*
+     * Returns the interned instance for an ISO code like "SEK", registering it on first use.
+     * Throws IllegalArgumentException if the code isn't three upper case letters.
+     * */
+    public static CurrencyCode of(String code) {
+        if (code == null) {
+            throw new IllegalArgumentException("Currency code can't be null");
+        }
+        CurrencyCode currency = BY_CODE.get(code);
+        if (currency != null) {
+            return currency;
+        }
+        return register(code);
+    }
+
+    /*
+     * Returns the currency with the given id, as returned by getId()
+     * */
+    public static CurrencyCode byId(int id) {
+        CurrencyCode[] table = byId;
+        if (id < 0 || id >= table.length) {
+            throw new IllegalArgumentException("Unknown currency id " + id);
+        }
+        return table[id];
+    }
+
+    /*
+     * Number of currencies registered so far, ids go from 0 to count() - 1
+     * */
+    public static int count() {
+        return byId.length;
+    }
+
+    private static synchronized CurrencyCode register(String code) {
+        CurrencyCode currency = BY_CODE.get(code);
+        if (currency != null) {
+            return currency;
+        }
+        if (!isValid(code)) {
+            throw new IllegalArgumentException("Not an ISO currency code: " + code);
+        }
+        CurrencyCode[] table = byId;
+        currency = new CurrencyCode(code, table.length, scaleOf(code));
+        CurrencyCode[] grown = Arrays.copyOf(table, table.length + 1);
+        grown[currency.id] = currency;
+        byId = grown;
+        BY_CODE.put(code, currency);
+        return currency;
+    }
+
+    private static boolean isValid(String code) {
+        if (code.length() != 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Most currencies use two decimals (cents, öre), a few use none or three.
+     * */
+    private static int scaleOf(String code) {
+        switch (code) {
+            case "JPY":
+            case "KRW":
+            case "ISK":
+                return 0;
+            case "KWD":
+            case "BHD":
+            case "OMR":
+                return 3;
+            default:
+                return 2;
+        }
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /*
+     * Number of decimals of the currency, e.g. 2 for SEK (100 öre) and 0 for JPY
+     * */
+    public int getScale() {
+        return scale;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
@@ -0,0 +1,213 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the results of operations by idempotency key, so a retried operation returns the first result
+ * instead of running again.
+ * The table is set-associative: each key hashes to a bucket of a few slots, so lookups are a handful of volatile reads
+ * without locks or allocation. Inserts take a lock per group of buckets, so two threads running the same key always
+ * find each other: only one of them runs the operation, the other waits for its result.
+ * The table is a hard bound on memory: expired slots are reused by the next key of their bucket, and if every slot of
+ * a bucket holds a live entry, a new key evicts the oldest finished one before its time to live is up. To keep keys for
+ * the whole time to live, give it a few times as many slots as keys expected within that time.
+ * A running operation is never evicted (or it could be started a second time), if every slot of a bucket is running,
+ * computeIfAbsent throws IllegalStateException without running the operation.
+ */
+public final class DedupCache {
+
+    /**
+     * Result of an operation that is still running
+     */
+    private static final Object PENDING = new Object();
+    private static final int WAYS = 4;
+    private static final int LOCK_STRIPES = 64;
+
+    private record Entry(long key, Object result, long created) {
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int ways;
+    private final int bucketMask;
+    private final Object[] locks;
+    private final long ttlNanos;
+
+    /*
+     * capacity is rounded up to a power of two
+     * */
+    public DedupCache(int capacity, long ttl_millis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        } else if (ttl_millis <= 0) {
+            throw new IllegalArgumentException("ttl_millis must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.ways = Math.min(WAYS, size);
+        this.bucketMask = size / ways - 1;
+        this.locks = new Object[Math.min(LOCK_STRIPES, size / ways)];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        this.ttlNanos = ttl_millis * 1_000_000;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    private int bucketOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & bucketMask;
+    }
+
+    // A running operation never expires, otherwise a slow one could be started a second time
+    private boolean expired(Entry entry, long now) {
+        return entry.result() != PENDING && now - entry.created() > ttlNanos;
+    }
+
+    /*
+     * Slot of the key in its bucket, or -1 if it is not in the table
+     * */
+    private int find(long key, int bucket) {
+        int first = bucket * ways;
+        for (int slot = first; slot < first + ways; slot++) {
+            Entry entry = slots.get(slot);
+            if (entry != null && entry.key() == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private Entry lookup(long key) {
+        int slot = find(key, bucketOf(key));
+        if (slot >= 0) {
+            Entry entry = slots.get(slot);
+            // The slot may have been reused for another key since find() looked
+            return entry != null && entry.key() == key ? entry : null;
+        }
+        return null;
+    }
+
+    /*
+     * The cached result for the key, or null if there is none (or its operation is still running)
+     * */
+    public Object get(long key) {
+        Entry entry = lookup(key);
+        if (entry == null || entry.result() == PENDING || expired(entry, System.nanoTime())) {
+            return null;
+        }
+        return entry.result();
+    }
+
+    /*
+     * Returns the cached result for the key, or runs the operation and caches its result.
+     * If the same key is running on another thread, waits for it and returns its result.
+     * If the operation throws nothing is cached, so a retry runs it again.
+     * Throws IllegalStateException (without running the operation) if every slot of the key's bucket is running.
+     * The operation must not return null.
+     * */
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(long key, Supplier<T> operation) {
+        while (true) {
+            Entry entry = lookup(key);
+            if (entry != null && !expired(entry, System.nanoTime())) {
+                if (entry.result() != PENDING) {
+                    return (T) entry.result();
+                }
+                Thread.onSpinWait(); // Same key running on another thread
+                continue;
+            }
+            Entry pending = claim(key);
+            if (pending == null) {
+                continue; // Another thread claimed the key first
+            }
+            T result;
+            try {
+                result = operation.get();
+            } catch (RuntimeException | Error e) {
+                replace(pending, null);
+                throw e;
+            }
+            if (result == null) {
+                replace(pending, null);
+                throw new NullPointerException("Operation returned null for key " + key);
+            }
+            // The time to live starts when the result is known
+            replace(pending, new Entry(key, result, System.nanoTime()));
+            return result;
+        }
+    }
+
+    /*
+     * Puts a pending entry for the key in a free or expired slot of its bucket, or in place of the oldest finished entry
+     * if there is none. Returns null if the key already has a live entry.
+     * */
+    private Entry claim(long key) {
+        int bucket = bucketOf(key);
+        synchronized (locks[bucket & (locks.length - 1)]) {
+            long now = System.nanoTime();
+            int free = -1;
+            int oldest = -1;
+            long oldestCreated = 0;
+            int first = bucket * ways;
+            for (int slot = first; slot < first + ways; slot++) {
+                Entry entry = slots.get(slot);
+                if (entry != null && entry.key() == key) {
+                    if (!expired(entry, now)) {
+                        return null;
+                    }
+                    // Reuses the key's own expired slot, so a key is never in the table twice
+                    free = slot;
+                    break;
+                } else if (entry == null || expired(entry, now)) {
+                    if (free < 0) {
+                        free = slot;
+                    }
+                } else if (entry.result() != PENDING && (oldest < 0 || entry.created() - oldestCreated < 0)) {
+                    oldest = slot;
+                    oldestCreated = entry.created();
+                }
+            }
+            if (free < 0) {
+                free = oldest;
+            }
+            if (free < 0) {
+                throw new IllegalStateException("Dedup cache is full, every slot for key " + key + " is running");
+            }
+            Entry pending = new Entry(key, PENDING, now);
+            // Only replaced under this lock, or by its own operation (which isn't running yet)
+            slots.set(free, pending);
+            return pending;
+        }
+    }
+
+    /*
+     * Replaces the pending entry with its result, or removes it if replacement is null
+     * */
+    private void replace(Entry pending, Entry replacement) {
+        // A pending entry is never evicted, so it is still in its slot
+        int slot = find(pending.key(), bucketOf(pending.key()));
+        if (slot >= 0) {
+            slots.compareAndSet(slot, pending, replacement);
+        }
+    }
+
+    /*
+     * Forgets the key, a later computeIfAbsent with it runs its operation again
+     * */
+    public void remove(long key) {
+        int slot = find(key, bucketOf(key));
+        if (slot >= 0) {
+            Entry entry = slots.get(slot);
+            if (entry != null && entry.key() == key && entry.result() != PENDING) {
+                slots.compareAndSet(slot, entry, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * A parsed conversion rate between two currencies, as handed out by RateTable.
+ * The version tells which update of the table the rate came from.
+ */
+public final class ExchangeRate {
+
+    private final CurrencyCode fromCurrency;
+    private final CurrencyCode toCurrency;
+    private final BigDecimal rate;
+    private final long version;
+
+    ExchangeRate(CurrencyCode fromCurrency, CurrencyCode toCurrency, BigDecimal rate, long version) {
+        this.fromCurrency = fromCurrency;
+        this.toCurrency = toCurrency;
+        this.rate = rate;
+        this.version = version;
+    }
+
+    public String getFromCurrency() {
+        return fromCurrency.getCode();
+    }
+
+    public String getToCurrency() {
+        return toCurrency.getCode();
+    }
+
+    public BigDecimal getRate() {
+        return rate;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /*
+     * Converts the account with this rate, returns false if the account isn't in the "from" currency
+     * */
+    public boolean convert(IAccount account) {
+        if (fromCurrency != account.getCurrencyCode()) {
+            return false;
+        }
+        return account.convertToCurrency(toCurrency.getCode(), rate);
+    }
+
+    @Override
+    public String toString() {
+        return fromCurrency + "->" + toCurrency + " " + rate.toPlainString() + " (v" + version + ")";
+    }
+}
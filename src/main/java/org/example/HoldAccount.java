@@ -0,0 +1,261 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * IAccount with holds (reservations): money is reserved first and captured (actually withdrawn) or released later,
+ * like a card payment that is authorized when the card is used and booked when the merchant settles.
+ * The booked balance (getBalance) only changes on capture, the available balance is the booked balance minus all
+ * outstanding holds, and the max_overdrawn limit applies to the available balance: a reservation or withdrawal is only
+ * accepted if the available balance stays at or above -max_overdrawn.
+ * Holds that are neither captured nor released expire on a TimerWheel, which can be shared by any number of accounts.
+ *
+ * The account is thread-safe, holds can expire on the wheel's thread while it is used elsewhere.
+ * The wrapped account must only be changed through this one, otherwise it can't keep the held money available.
+ */
+public class HoldAccount implements IAccount {
+
+    /**
+     * A reservation on a HoldAccount, returned by reserve and passed to capture or release
+     */
+    public static final class Hold extends TimerWheel.Timeout {
+
+        public enum State {
+            ACTIVE,
+            CAPTURED,
+            RELEASED,
+            EXPIRED
+        }
+
+        private final HoldAccount account;
+        private final BigDecimal amount;
+        private State state = State.ACTIVE;
+
+        private Hold(HoldAccount account, BigDecimal amount) {
+            this.account = account;
+            this.amount = amount;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public State getState() {
+            synchronized (account) {
+                return state;
+            }
+        }
+
+        @Override
+        protected void expire() {
+            account.expire(this);
+        }
+    }
+
+    private final IAccount delegate;
+    private final TimerWheel wheel;
+    /**
+     * Sum of the amounts of all active holds
+     */
+    private BigDecimal held = BigDecimal.ZERO;
+    private int activeHolds;
+
+    public HoldAccount(IAccount delegate, TimerWheel wheel) {
+        this.delegate = delegate;
+        this.wheel = wheel;
+    }
+
+    /*
+     * Reserves amount for ttl_millis, returns the hold, or null if the amount isn't positive
+     * or the available balance would drop below -max_overdrawn
+     * */
+    public synchronized Hold reserve(BigDecimal amount, long ttl_millis) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0 || !allows(amount)) {
+            return null;
+        }
+        Hold hold = new Hold(this, amount);
+        held = held.add(amount);
+        activeHolds++;
+        wheel.schedule(hold, ttl_millis);
+        return hold;
+    }
+
+    /*
+     * Withdraws the whole held amount, see capture(Hold, BigDecimal)
+     * */
+    public boolean capture(Hold hold) {
+        return capture(hold, hold.amount);
+    }
+
+    /*
+     * Withdraws amount (at most the held amount) and ends the hold, the rest of the held amount becomes available again.
+     * Returns false if the hold isn't active on this account, the amount isn't between 0 and the held amount,
+     * or the wrapped account rejects the withdrawal; the hold then stays active.
+     * */
+    public synchronized boolean capture(Hold hold, BigDecimal amount) {
+        if (hold.account != this || hold.state != Hold.State.ACTIVE
+                || amount.compareTo(BigDecimal.ZERO) <= 0 || amount.compareTo(hold.amount) > 0) {
+            return false;
+        }
+        // The hold keeps the available balance above -max_overdrawn, so this only fails if the wrapped account
+        // was changed behind our back
+        if (!delegate.tryWithdraw(amount)) {
+            return false;
+        }
+        end(hold, Hold.State.CAPTURED);
+        return true;
+    }
+
+    /*
+     * Ends the hold without withdrawing anything, returns false if it isn't active on this account
+     * */
+    public synchronized boolean release(Hold hold) {
+        if (hold.account != this || hold.state != Hold.State.ACTIVE) {
+            return false;
+        }
+        end(hold, Hold.State.RELEASED);
+        return true;
+    }
+
+    private synchronized void expire(Hold hold) {
+        if (hold.state == Hold.State.ACTIVE) {
+            end(hold, Hold.State.EXPIRED);
+        }
+    }
+
+    private void end(Hold hold, Hold.State state) {
+        hold.state = state;
+        held = held.subtract(hold.amount);
+        activeHolds--;
+        if (state != Hold.State.EXPIRED) {
+            wheel.cancel(hold);
+        }
+    }
+
+    private boolean allows(BigDecimal amount) {
+        return delegate.getBalance().subtract(held).subtract(amount).compareTo(delegate.getMaxOverdrawn().negate()) >= 0;
+    }
+
+    /*
+     * Booked balance minus outstanding holds
+     * */
+    public synchronized BigDecimal getAvailableBalance() {
+        return delegate.getBalance().subtract(held);
+    }
+
+    public synchronized BigDecimal getHeldAmount() {
+        return held;
+    }
+
+    public synchronized int getHoldCount() {
+        return activeHolds;
+    }
+
+    @Override
+    // Like Account.withdraw, but checked against the available balance
+    public synchronized BigDecimal withdraw(BigDecimal requested_amount) {
+        if (requested_amount.compareTo(BigDecimal.ZERO) > 0 && !allows(requested_amount)) {
+            return delegate.getBalance();
+        }
+        return delegate.withdraw(requested_amount);
+    }
+
+    @Override
+    public synchronized boolean tryWithdraw(BigDecimal requested_amount) {
+        BigDecimal before = delegate.getBalance();
+        return withdraw(requested_amount).compareTo(before) != 0;
+    }
+
+    @Override
+    public synchronized boolean tryDeposit(BigDecimal amount_to_deposit) {
+        return delegate.tryDeposit(amount_to_deposit);
+    }
+
+    @Override
+    // Withdraws the available balance, held money stays in the account
+    public synchronized BigDecimal withdrawAll() {
+        if (activeHolds == 0) {
+            return delegate.withdrawAll();
+        }
+        BigDecimal available = delegate.getBalance().subtract(held);
+        if (available.compareTo(BigDecimal.ZERO) <= 0) {
+            return delegate.getBalance();
+        }
+        return delegate.withdraw(available);
+    }
+
+    @Override
+    public synchronized BigDecimal deposit(BigDecimal amount_to_deposit) {
+        return delegate.deposit(amount_to_deposit);
+    }
+
+    @Override
+    public synchronized BigDecimal getBalance() {
+        return delegate.getBalance();
+    }
+
+    @Override
+    // Like Account.setBalance, but the limit applies to the available balance it leaves
+    public synchronized void setBalance(BigDecimal balance) {
+        if (balance.subtract(held).compareTo(delegate.getMaxOverdrawn().negate()) >= 0) {
+            delegate.setBalance(balance);
+        }
+    }
+
+    @Override
+    public synchronized BigDecimal getMaxOverdrawn() {
+        return delegate.getMaxOverdrawn();
+    }
+
+    @Override
+    public synchronized String getCurrency() {
+        return delegate.getCurrency();
+    }
+
+    @Override
+    public synchronized CurrencyCode getCurrencyCode() {
+        return delegate.getCurrencyCode();
+    }
+
+    @Override
+    // Holds are in the current currency, so an account with holds can't be converted
+    public synchronized boolean convertToCurrency(String currency_code, double rate) {
+        return activeHolds == 0 && delegate.convertToCurrency(currency_code, rate);
+    }
+
+    @Override
+    public synchronized boolean convertToCurrency(String currency_code, BigDecimal rate) {
+        return activeHolds == 0 && delegate.convertToCurrency(currency_code, rate);
+    }
+
+    @Override
+    // Moves the available balance, held money stays. The target is only called outside this account's lock,
+    // so two hold accounts transferring to each other can't deadlock. If the target rejects the deposit
+    // (or throws, or its currency changed since it was checked) the money is put back.
+    public void TransferToAccount(IAccount to_account) {
+        if (to_account == this) {
+            return;
+        }
+        CurrencyCode targetCurrency = to_account.getCurrencyCode();
+        BigDecimal amount;
+        synchronized (this) {
+            amount = delegate.getBalance().subtract(held);
+            if (amount.compareTo(BigDecimal.ZERO) <= 0 || delegate.getCurrencyCode() != targetCurrency) {
+                return;
+            }
+            if (!delegate.tryWithdraw(amount)) {
+                return;
+            }
+        }
+        boolean deposited = false;
+        try {
+            deposited = to_account.getCurrencyCode() == targetCurrency && to_account.tryDeposit(amount);
+        } finally {
+            if (!deposited) {
+                synchronized (this) {
+                    delegate.deposit(amount);
+                }
+            }
+        }
+    }
+}
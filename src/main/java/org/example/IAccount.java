@@ -0,0 +1,89 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+public interface IAccount {
+
+    /*
+     * Method for withdrawing specified amount of money from account
+     * After a withdrawal, the balance can be negative, up to minus the max_overdrawn amount.
+     * The balance shall never be lower than that.
+     * For example, if max_overdrawn is 100, the balance can be at lowest -100, but shall not be -101 or less.
+     * */
+    public abstract BigDecimal withdraw(BigDecimal requested_amount);
+
+    /*
+     * Method that withdraws all the money from the account
+     * */
+    public abstract BigDecimal withdrawAll();
+
+    /*
+     * Method for adding money to account
+     * */
+    public abstract BigDecimal deposit(BigDecimal amount_to_deposit);
+
+    /*
+     * Same as withdraw, but returns true if the amount was withdrawn and false if it was rejected.
+     * The default compares the balance before and after, which is only reliable when no other thread changes
+     * the account at the same time; accounts that can be shared between threads override it.
+     * */
+    default boolean tryWithdraw(BigDecimal requested_amount) {
+        BigDecimal before = getBalance();
+        return withdraw(requested_amount).compareTo(before) != 0;
+    }
+
+    /*
+     * Same as deposit, but returns true if the amount was deposited and false if it was rejected (see tryWithdraw)
+     * */
+    default boolean tryDeposit(BigDecimal amount_to_deposit) {
+        BigDecimal before = getBalance();
+        return deposit(amount_to_deposit).compareTo(before) != 0;
+    }
+
+    /*
+     * Method to get the current balance of the account
+     * */
+    public BigDecimal getBalance();
+
+    /*
+     * Method for setting the balance directly (e.g. to correct an account).
+     * A balance below -max_overdrawn is ignored, the balance then stays as it was.
+     * */
+    public void setBalance(BigDecimal balance);
+
+    /*
+     * Method to get how much the account can be "in the red", the balance can go down to -1 * max_overdrawn
+     * */
+    public BigDecimal getMaxOverdrawn();
+
+    /*
+     * Method to get the Currency code from the account
+     * */
+    public String getCurrency();
+
+    /*
+     * Method to get the interned currency of the account, two accounts hold the same currency
+     * if and only if their CurrencyCodes are the same instance
+     * */
+    public CurrencyCode getCurrencyCode();
+
+    /*
+     * Method for converting you money into different currency
+     *
+     * the method returns true if the conversion has been performed
+     * false if the conversion fails
+     * */
+    public abstract boolean convertToCurrency(String currency_code, double rate);
+
+    /*
+     * Same as convertToCurrency above, with a rate that is already parsed (e.g. from a RateTable)
+     * */
+    public abstract boolean convertToCurrency(String currency_code, BigDecimal rate);
+
+    /*
+     * Method that makes transfer from one account to another.
+     * The transfer should be possible if and only if both accounts hold the same currency.
+     * */
+
+    public abstract void TransferToAccount(IAccount account);
+}
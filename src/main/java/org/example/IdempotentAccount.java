@@ -0,0 +1,118 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * IAccount whose mutating operations can be given an idempotency key.
+ * The first call with a key runs the operation and remembers its result in a DedupCache,
+ * a repeated call with the same key (e.g. a client retrying after a timeout) returns that result without running again.
+ * The plain IAccount methods run every time, as on the wrapped account.
+ * Keys must be unique across all accounts sharing the cache, a key reused for another operation gets the old result.
+ */
+public class IdempotentAccount implements IAccount {
+
+    /**
+     * Cached result of TransferToAccount, which returns nothing
+     */
+    private static final Object TRANSFERRED = new Object();
+
+    private final IAccount delegate;
+    private final DedupCache cache;
+
+    public IdempotentAccount(IAccount delegate, DedupCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public IAccount delegate() {
+        return delegate;
+    }
+
+    public BigDecimal withdraw(long idempotency_key, BigDecimal requested_amount) {
+        return cache.computeIfAbsent(idempotency_key, () -> delegate.withdraw(requested_amount));
+    }
+
+    public BigDecimal withdrawAll(long idempotency_key) {
+        return cache.computeIfAbsent(idempotency_key, delegate::withdrawAll);
+    }
+
+    public BigDecimal deposit(long idempotency_key, BigDecimal amount_to_deposit) {
+        return cache.computeIfAbsent(idempotency_key, () -> delegate.deposit(amount_to_deposit));
+    }
+
+    public boolean convertToCurrency(long idempotency_key, String currency_code, BigDecimal rate) {
+        return cache.computeIfAbsent(idempotency_key, () -> delegate.convertToCurrency(currency_code, rate));
+    }
+
+    public void TransferToAccount(long idempotency_key, IAccount to_account) {
+        cache.computeIfAbsent(idempotency_key, () -> {
+            delegate.TransferToAccount(to_account);
+            return TRANSFERRED;
+        });
+    }
+
+    @Override
+    public BigDecimal withdraw(BigDecimal requested_amount) {
+        return delegate.withdraw(requested_amount);
+    }
+
+    @Override
+    public BigDecimal withdrawAll() {
+        return delegate.withdrawAll();
+    }
+
+    @Override
+    public BigDecimal deposit(BigDecimal amount_to_deposit) {
+        return delegate.deposit(amount_to_deposit);
+    }
+
+    @Override
+    public boolean tryWithdraw(BigDecimal requested_amount) {
+        return delegate.tryWithdraw(requested_amount);
+    }
+
+    @Override
+    public boolean tryDeposit(BigDecimal amount_to_deposit) {
+        return delegate.tryDeposit(amount_to_deposit);
+    }
+
+    @Override
+    public BigDecimal getBalance() {
+        return delegate.getBalance();
+    }
+
+    @Override
+    public void setBalance(BigDecimal balance) {
+        delegate.setBalance(balance);
+    }
+
+    @Override
+    public BigDecimal getMaxOverdrawn() {
+        return delegate.getMaxOverdrawn();
+    }
+
+    @Override
+    public String getCurrency() {
+        return delegate.getCurrency();
+    }
+
+    @Override
+    public CurrencyCode getCurrencyCode() {
+        return delegate.getCurrencyCode();
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, double rate) {
+        return delegate.convertToCurrency(currency_code, rate);
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, BigDecimal rate) {
+        return delegate.convertToCurrency(currency_code, rate);
+    }
+
+    @Override
+    public void TransferToAccount(IAccount to_account) {
+        delegate.TransferToAccount(to_account);
+    }
+}
@@ -0,0 +1,144 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * IAccount that keeps an AggregateIndex up to date with the wrapped account.
+ * The account is added to the index when it is wrapped, and every change made through this wrapper
+ * (including transfers between two indexed accounts and setBalance) moves its contribution to the new state.
+ * Changes made directly on the wrapped account are not seen by the index.
+ * Like Account, one indexed account should only be changed from one thread at a time,
+ * the index itself can be shared by accounts changed on any number of threads.
+ */
+public class IndexedAccount implements IAccount {
+
+    private final IAccount delegate;
+    private final AggregateIndex index;
+    private boolean detached;
+
+    public IndexedAccount(IAccount delegate, AggregateIndex index) {
+        this.delegate = delegate;
+        this.index = index;
+        index.add(delegate.getCurrencyCode(), delegate.getBalance(), delegate.getMaxOverdrawn());
+    }
+
+    /*
+     * The wrapped account, changes made directly to it are not indexed
+     * */
+    public IAccount delegate() {
+        return delegate;
+    }
+
+    /*
+     * Removes the account from the index, e.g. when it is closed. Later changes are not indexed.
+     * */
+    public void detach() {
+        if (!detached) {
+            detached = true;
+            index.remove(delegate.getCurrencyCode(), delegate.getBalance(), delegate.getMaxOverdrawn());
+        }
+    }
+
+    @Override
+    public BigDecimal withdraw(BigDecimal requested_amount) {
+        BigDecimal before = delegate.getBalance();
+        BigDecimal balance = delegate.withdraw(requested_amount);
+        balanceChanged(before);
+        return balance;
+    }
+
+    @Override
+    public BigDecimal withdrawAll() {
+        BigDecimal before = delegate.getBalance();
+        BigDecimal balance = delegate.withdrawAll();
+        balanceChanged(before);
+        return balance;
+    }
+
+    @Override
+    public BigDecimal deposit(BigDecimal amount_to_deposit) {
+        BigDecimal before = delegate.getBalance();
+        BigDecimal balance = delegate.deposit(amount_to_deposit);
+        balanceChanged(before);
+        return balance;
+    }
+
+    @Override
+    public void setBalance(BigDecimal balance) {
+        BigDecimal before = delegate.getBalance();
+        delegate.setBalance(balance);
+        balanceChanged(before);
+    }
+
+    @Override
+    public BigDecimal getBalance() {
+        return delegate.getBalance();
+    }
+
+    @Override
+    public BigDecimal getMaxOverdrawn() {
+        return delegate.getMaxOverdrawn();
+    }
+
+    @Override
+    public String getCurrency() {
+        return delegate.getCurrency();
+    }
+
+    @Override
+    public CurrencyCode getCurrencyCode() {
+        return delegate.getCurrencyCode();
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, double rate) {
+        CurrencyCode currency = delegate.getCurrencyCode();
+        BigDecimal balance = delegate.getBalance();
+        BigDecimal maxOverdrawn = delegate.getMaxOverdrawn();
+        boolean converted = delegate.convertToCurrency(currency_code, rate);
+        changed(currency, balance, maxOverdrawn);
+        return converted;
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, BigDecimal rate) {
+        CurrencyCode currency = delegate.getCurrencyCode();
+        BigDecimal balance = delegate.getBalance();
+        BigDecimal maxOverdrawn = delegate.getMaxOverdrawn();
+        boolean converted = delegate.convertToCurrency(currency_code, rate);
+        changed(currency, balance, maxOverdrawn);
+        return converted;
+    }
+
+    @Override
+    // Between two indexed accounts both sides are updated, the wrapped target is passed on so its fast paths still apply
+    public void TransferToAccount(IAccount to_account) {
+        BigDecimal before = delegate.getBalance();
+        if (to_account == this) {
+            delegate.TransferToAccount(delegate);
+        } else if (to_account instanceof IndexedAccount) {
+            IndexedAccount to = (IndexedAccount) to_account;
+            BigDecimal targetBefore = to.delegate.getBalance();
+            delegate.TransferToAccount(to.delegate);
+            to.balanceChanged(targetBefore);
+        } else {
+            delegate.TransferToAccount(to_account);
+        }
+        balanceChanged(before);
+    }
+
+    private void balanceChanged(BigDecimal before) {
+        if (!detached) {
+            BigDecimal maxOverdrawn = delegate.getMaxOverdrawn();
+            CurrencyCode currency = delegate.getCurrencyCode();
+            index.update(currency, before, maxOverdrawn, currency, delegate.getBalance(), maxOverdrawn);
+        }
+    }
+
+    private void changed(CurrencyCode currency, BigDecimal balance, BigDecimal max_overdrawn) {
+        if (!detached) {
+            index.update(currency, balance, max_overdrawn,
+                    delegate.getCurrencyCode(), delegate.getBalance(), delegate.getMaxOverdrawn());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * IAccount that records every mutating operation of the wrapped account in an AccountMetrics:
+ * whether it was accepted, why it was rejected, and how long it took.
+ * IAccount doesn't report rejections, so they are detected from the balance before and after the call
+ * and classified by the same checks Account makes.
+ * When the metrics are disabled each call costs one volatile read on top of the wrapped account,
+ * when enabled nothing is allocated (for a LongAccount the balance is compared in minor units).
+ * If the wrapped account is changed by another thread during a call, that call may be counted wrong.
+ */
+public class InstrumentedAccount implements IAccount {
+
+    private final IAccount delegate;
+    private final AccountMetrics metrics;
+    /**
+     * The delegate if it is a LongAccount, so balances can be compared without creating BigDecimals
+     */
+    private final LongAccount fixedPoint;
+
+    public InstrumentedAccount(IAccount delegate, AccountMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.fixedPoint = delegate instanceof LongAccount ? (LongAccount) delegate : null;
+    }
+
+    /*
+     * The wrapped account, operations called directly on it are not recorded
+     * */
+    public IAccount delegate() {
+        return delegate;
+    }
+
+    public AccountMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public BigDecimal withdraw(BigDecimal requested_amount) {
+        if (!metrics.isEnabled()) {
+            return delegate.withdraw(requested_amount);
+        }
+        long start = System.nanoTime();
+        try {
+            if (fixedPoint != null) {
+                long before = fixedPoint.getBalanceMinor();
+                BigDecimal balance = delegate.withdraw(requested_amount);
+                record(AccountOperation.WITHDRAW, fixedPoint.getBalanceMinor() != before,
+                        amountReason(requested_amount, RejectReason.INSUFFICIENT_FUNDS), start);
+                return balance;
+            }
+            BigDecimal before = delegate.getBalance();
+            BigDecimal balance = delegate.withdraw(requested_amount);
+            record(AccountOperation.WITHDRAW, balance.compareTo(before) != 0,
+                    amountReason(requested_amount, RejectReason.INSUFFICIENT_FUNDS), start);
+            return balance;
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.WITHDRAW, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public BigDecimal withdrawAll() {
+        if (!metrics.isEnabled()) {
+            return delegate.withdrawAll();
+        }
+        long start = System.nanoTime();
+        try {
+            if (fixedPoint != null) {
+                long before = fixedPoint.getBalanceMinor();
+                BigDecimal balance = delegate.withdrawAll();
+                record(AccountOperation.WITHDRAW_ALL, fixedPoint.getBalanceMinor() != before,
+                        before <= 0 ? RejectReason.NO_FUNDS : RejectReason.OTHER, start);
+                return balance;
+            }
+            BigDecimal before = delegate.getBalance();
+            BigDecimal balance = delegate.withdrawAll();
+            record(AccountOperation.WITHDRAW_ALL, balance.compareTo(before) != 0,
+                    before.signum() <= 0 ? RejectReason.NO_FUNDS : RejectReason.OTHER, start);
+            return balance;
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.WITHDRAW_ALL, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public BigDecimal deposit(BigDecimal amount_to_deposit) {
+        if (!metrics.isEnabled()) {
+            return delegate.deposit(amount_to_deposit);
+        }
+        long start = System.nanoTime();
+        try {
+            if (fixedPoint != null) {
+                long before = fixedPoint.getBalanceMinor();
+                BigDecimal balance = delegate.deposit(amount_to_deposit);
+                record(AccountOperation.DEPOSIT, fixedPoint.getBalanceMinor() != before,
+                        amountReason(amount_to_deposit, RejectReason.OTHER), start);
+                return balance;
+            }
+            BigDecimal before = delegate.getBalance();
+            BigDecimal balance = delegate.deposit(amount_to_deposit);
+            record(AccountOperation.DEPOSIT, balance.compareTo(before) != 0,
+                    amountReason(amount_to_deposit, RejectReason.OTHER), start);
+            return balance;
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.DEPOSIT, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean tryWithdraw(BigDecimal requested_amount) {
+        if (!metrics.isEnabled()) {
+            return delegate.tryWithdraw(requested_amount);
+        }
+        long start = System.nanoTime();
+        boolean withdrawn;
+        try {
+            withdrawn = delegate.tryWithdraw(requested_amount);
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.WITHDRAW, start);
+            throw e;
+        }
+        record(AccountOperation.WITHDRAW, withdrawn, amountReason(requested_amount, RejectReason.INSUFFICIENT_FUNDS), start);
+        return withdrawn;
+    }
+
+    @Override
+    public boolean tryDeposit(BigDecimal amount_to_deposit) {
+        if (!metrics.isEnabled()) {
+            return delegate.tryDeposit(amount_to_deposit);
+        }
+        long start = System.nanoTime();
+        boolean deposited;
+        try {
+            deposited = delegate.tryDeposit(amount_to_deposit);
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.DEPOSIT, start);
+            throw e;
+        }
+        record(AccountOperation.DEPOSIT, deposited, amountReason(amount_to_deposit, RejectReason.OTHER), start);
+        return deposited;
+    }
+
+    @Override
+    public BigDecimal getBalance() {
+        return delegate.getBalance();
+    }
+
+    @Override
+    // Not one of the recorded operations, it is an administrative correction and not a customer operation
+    public void setBalance(BigDecimal balance) {
+        delegate.setBalance(balance);
+    }
+
+    @Override
+    public BigDecimal getMaxOverdrawn() {
+        return delegate.getMaxOverdrawn();
+    }
+
+    @Override
+    public String getCurrency() {
+        return delegate.getCurrency();
+    }
+
+    @Override
+    public CurrencyCode getCurrencyCode() {
+        return delegate.getCurrencyCode();
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, double rate) {
+        if (!metrics.isEnabled()) {
+            return delegate.convertToCurrency(currency_code, rate);
+        }
+        long start = System.nanoTime();
+        boolean converted;
+        try {
+            converted = delegate.convertToCurrency(currency_code, rate);
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.CONVERT, start);
+            throw e;
+        }
+        record(AccountOperation.CONVERT, converted, rate <= 0 ? RejectReason.INVALID_RATE : RejectReason.OTHER, start);
+        return converted;
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, BigDecimal rate) {
+        if (!metrics.isEnabled()) {
+            return delegate.convertToCurrency(currency_code, rate);
+        }
+        long start = System.nanoTime();
+        boolean converted;
+        try {
+            converted = delegate.convertToCurrency(currency_code, rate);
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.CONVERT, start);
+            throw e;
+        }
+        record(AccountOperation.CONVERT, converted,
+                rate.signum() <= 0 ? RejectReason.INVALID_RATE : RejectReason.OTHER, start);
+        return converted;
+    }
+
+    @Override
+    // The target is unwrapped so the wrapped accounts can use their fast paths,
+    // the deposit into an instrumented target is counted as part of the transfer and not as a deposit.
+    public void TransferToAccount(IAccount to_account) {
+        IAccount target = to_account instanceof InstrumentedAccount ? ((InstrumentedAccount) to_account).delegate : to_account;
+        if (!metrics.isEnabled()) {
+            delegate.TransferToAccount(target);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean moved;
+        boolean hadFunds;
+        try {
+            if (fixedPoint != null) {
+                long before = fixedPoint.getBalanceMinor();
+                fixedPoint.TransferToAccount(target);
+                moved = fixedPoint.getBalanceMinor() != before;
+                hadFunds = before > 0;
+            } else {
+                BigDecimal before = delegate.getBalance();
+                delegate.TransferToAccount(target);
+                moved = delegate.getBalance().compareTo(before) != 0;
+                hadFunds = before.signum() > 0;
+            }
+        } catch (RuntimeException e) {
+            recordFailure(AccountOperation.TRANSFER, start);
+            throw e;
+        }
+        RejectReason reason;
+        if (!hadFunds) {
+            reason = RejectReason.NO_FUNDS;
+        } else if (delegate.getCurrencyCode() != target.getCurrencyCode()) {
+            reason = RejectReason.CURRENCY_MISMATCH;
+        } else {
+            reason = RejectReason.OTHER;
+        }
+        record(AccountOperation.TRANSFER, moved, reason, start);
+    }
+
+    private static RejectReason amountReason(BigDecimal amount, RejectReason otherwise) {
+        return amount.signum() <= 0 ? RejectReason.INVALID_AMOUNT : otherwise;
+    }
+
+    /*
+     * Records an operation that threw as rejected, e.g. a LongAccount that can't hold an amount
+     * (more decimals than its currency has, or too large for its minor units)
+     * */
+    private void recordFailure(AccountOperation operation, long start) {
+        metrics.recordRejection(operation, RejectReason.OTHER, System.nanoTime() - start);
+    }
+
+    private void record(AccountOperation operation, boolean accepted, RejectReason reason, long start) {
+        long nanos = System.nanoTime() - start;
+        if (accepted) {
+            metrics.recordSuccess(operation, nanos);
+        } else {
+            metrics.recordRejection(operation, reason, nanos);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * IAccount that writes every mutating operation to a TransactionJournal after applying it to the wrapped account.
+ * Operations are journaled as requested (also the ones that are rejected), replaying them in the same order
+ * on the same starting state gives the same result.
+ * An operation is applied and appended under the journal's lock, so the journal has the operations in the order
+ * they were applied, also when the accounts are used from several threads. Before applying it, the journal is checked
+ * to be able to take the record, so an operation that can't be journaled fails without changing the account.
+ * Created by TransactionJournal.create, or rebuilt when a journal is opened.
+ */
+public class JournaledAccount implements IAccount {
+
+    private final long id;
+    private final IAccount delegate;
+    private final TransactionJournal journal;
+
+    JournaledAccount(long id, IAccount delegate, TransactionJournal journal) {
+        this.id = id;
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /*
+     * The wrapped account, changes made directly to it are not journaled
+     * */
+    IAccount delegate() {
+        return delegate;
+    }
+
+    @Override
+    public BigDecimal withdraw(BigDecimal requested_amount) {
+        synchronized (journal) {
+            journal.checkAppend(BinaryCodec.decimalSize(requested_amount));
+            BigDecimal balance = delegate.withdraw(requested_amount);
+            journal.appendAmount(TransactionJournal.WITHDRAW, id, requested_amount);
+            return balance;
+        }
+    }
+
+    @Override
+    public BigDecimal withdrawAll() {
+        synchronized (journal) {
+            journal.checkAppend(0);
+            BigDecimal balance = delegate.withdrawAll();
+            journal.appendWithdrawAll(id);
+            return balance;
+        }
+    }
+
+    @Override
+    public BigDecimal deposit(BigDecimal amount_to_deposit) {
+        synchronized (journal) {
+            journal.checkAppend(BinaryCodec.decimalSize(amount_to_deposit));
+            BigDecimal balance = delegate.deposit(amount_to_deposit);
+            journal.appendAmount(TransactionJournal.DEPOSIT, id, amount_to_deposit);
+            return balance;
+        }
+    }
+
+    @Override
+    public boolean tryWithdraw(BigDecimal requested_amount) {
+        synchronized (journal) {
+            BigDecimal before = delegate.getBalance();
+            return withdraw(requested_amount).compareTo(before) != 0;
+        }
+    }
+
+    @Override
+    public boolean tryDeposit(BigDecimal amount_to_deposit) {
+        synchronized (journal) {
+            BigDecimal before = delegate.getBalance();
+            return deposit(amount_to_deposit).compareTo(before) != 0;
+        }
+    }
+
+    @Override
+    public BigDecimal getBalance() {
+        synchronized (journal) {
+            return delegate.getBalance();
+        }
+    }
+
+    @Override
+    public void setBalance(BigDecimal balance) {
+        synchronized (journal) {
+            journal.checkAppend(BinaryCodec.decimalSize(balance));
+            delegate.setBalance(balance);
+            journal.appendAmount(TransactionJournal.SET_BALANCE, id, balance);
+        }
+    }
+
+    @Override
+    public BigDecimal getMaxOverdrawn() {
+        synchronized (journal) {
+            return delegate.getMaxOverdrawn();
+        }
+    }
+
+    @Override
+    public String getCurrency() {
+        synchronized (journal) {
+            return delegate.getCurrency();
+        }
+    }
+
+    @Override
+    public CurrencyCode getCurrencyCode() {
+        synchronized (journal) {
+            return delegate.getCurrencyCode();
+        }
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, double rate) {
+        if (rate <= 0) {
+            return false;
+        }
+        return convertToCurrency(currency_code, new BigDecimal(Double.toString(rate)));
+    }
+
+    @Override
+    public boolean convertToCurrency(String currency_code, BigDecimal rate) {
+        synchronized (journal) {
+            journal.checkAppend(BinaryCodec.CURRENCY_SIZE + BinaryCodec.decimalSize(rate));
+            boolean converted = delegate.convertToCurrency(currency_code, rate);
+            if (converted) {
+                journal.appendConvert(id, CurrencyCode.of(currency_code), rate);
+            }
+            return converted;
+        }
+    }
+
+    @Override
+    // Transfers between two accounts of this journal are one record, replay moves the money again.
+    // Money sent anywhere else (also to an account of another journal) is recorded as leaving this account
+    // and deposited outside the lock, so the journal isn't locked while the other account is.
+    // If the other account rejects the deposit the money is deposited back.
+    public void TransferToAccount(IAccount to_account) {
+        if (to_account instanceof JournaledAccount && ((JournaledAccount) to_account).journal == journal) {
+            JournaledAccount to = (JournaledAccount) to_account;
+            synchronized (journal) {
+                journal.checkAppend(Long.BYTES);
+                delegate.TransferToAccount(to.delegate);
+                journal.appendTransfer(id, to.id);
+            }
+            return;
+        }
+        CurrencyCode targetCurrency = to_account.getCurrencyCode();
+        BigDecimal amount;
+        synchronized (journal) {
+            if (delegate.getCurrencyCode() != targetCurrency) {
+                return; // Can't transfer to an account with different currency
+            }
+            journal.checkAppend(Long.BYTES);
+            // The same thing replay does with a NOT_JOURNALED transfer
+            Account leaving = new Account(BigDecimal.ZERO, delegate.getCurrency(), BigDecimal.ZERO);
+            delegate.TransferToAccount(leaving);
+            amount = leaving.getBalance();
+            // Replay can't check the other account, so only record transfers that actually moved money
+            if (amount.signum() == 0) {
+                return;
+            }
+            journal.appendTransfer(id, TransactionJournal.NOT_JOURNALED);
+        }
+        boolean deposited = false;
+        try {
+            deposited = to_account.tryDeposit(amount);
+        } finally {
+            if (!deposited) {
+                deposit(amount);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drives a CommandServer through its socket with many concurrent clients and measures the latency of every command.
+ * Each client is a virtual thread with its own connection: it sends a random deposit, withdraw or transfer,
+ * waits for the reply line and sends the next one, so the number of clients is the number of commands in flight.
+ * Latency is measured from writing a command to reading its reply, as a client of the server sees it.
+ * Every client holds a connection, so the open file limit has to allow one per client
+ * (two if the server runs in the same JVM).
+ */
+public class LoadGenerator {
+
+    /**
+     * Commands written before their replies are read while creating the accounts
+     */
+    private static final int CREATE_BATCH = 256;
+
+    /**
+     * Outcome of a run, latencies are from sending a command to reading its reply in nanoseconds
+     */
+    public record Result(int clients, long commands, long nanos, LatencyHistogram latency) {
+
+        public double commandsPerSecond() {
+            return commands * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d clients, %d commands in %.1f ms, %.0f commands/s, latency p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+                    clients, commands, nanos / 1e6, commandsPerSecond(),
+                    latency.getValueAtPercentile(50) / 1e3, latency.getValueAtPercentile(99) / 1e3,
+                    latency.getValueAtPercentile(99.9) / 1e3, latency.getMax() / 1e3);
+        }
+    }
+
+    private final InetSocketAddress server;
+    private final int accounts;
+
+    /*
+     * Connects to the server listening on port on the loopback interface
+     * and creates account_count SEK accounts with ids 0 to account_count - 1 through it
+     * */
+    public LoadGenerator(int port, int account_count) throws IOException {
+        this.server = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        this.accounts = account_count;
+        try (Connection connection = new Connection(server)) {
+            for (int first = 0; first < account_count; first += CREATE_BATCH) {
+                int last = Math.min(first + CREATE_BATCH, account_count);
+                for (int i = first; i < last; i++) {
+                    connection.write(AccountCommand.create(i, new BigDecimal(1_000_000), "SEK", new BigDecimal(1000)));
+                }
+                connection.out.flush();
+                for (int i = first; i < last; i++) {
+                    String reply = connection.in.readLine();
+                    if (reply == null || !reply.startsWith("OK")) {
+                        throw new IOException("Could not create account " + i + ": " + reply);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Runs clients clients that each send commands_per_client commands and waits for all of them.
+     * Throws UncheckedIOException if a client loses its connection.
+     * */
+    public Result run(int clients, int commands_per_client, long seed) {
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        long start = System.nanoTime();
+        // close() waits for every client to finish
+        try (ExecutorService running = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                SplittableRandom random = new SplittableRandom(seed + i);
+                running.execute(() -> {
+                    try {
+                        runClient(random, commands_per_client, latency);
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (failure.get() != null) {
+            throw new UncheckedIOException(failure.get());
+        }
+        return new Result(clients, (long) clients * commands_per_client, nanos, latency);
+    }
+
+    private void runClient(SplittableRandom random, int commands, LatencyHistogram latency) throws IOException {
+        try (Connection connection = new Connection(server)) {
+            for (int i = 0; i < commands; i++) {
+                AccountCommand command = randomCommand(random);
+                long sent = System.nanoTime();
+                connection.write(command);
+                connection.out.flush();
+                String reply = connection.in.readLine();
+                latency.record(System.nanoTime() - sent);
+                if (reply == null) {
+                    throw new IOException("Server closed the connection");
+                }
+            }
+        }
+    }
+
+    AccountCommand randomCommand(SplittableRandom random) {
+        long account = random.nextInt(accounts);
+        int kind = random.nextInt(100);
+        if (kind < 45) {
+            return AccountCommand.deposit(account, BigDecimal.valueOf(random.nextInt(1, 10_000), 2));
+        } else if (kind < 90) {
+            return AccountCommand.withdraw(account, BigDecimal.valueOf(random.nextInt(1, 10_000), 2));
+        }
+        return AccountCommand.transfer(account, random.nextInt(accounts));
+    }
+
+    /**
+     * A client's connection to the server
+     */
+    private static final class Connection implements AutoCloseable {
+
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Connection(InetSocketAddress server) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.connect(server);
+                this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void write(AccountCommand command) throws IOException {
+            out.write(command.toString());
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
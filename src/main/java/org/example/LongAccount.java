@@ -0,0 +1,207 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * Account that stores balance and max_overdrawn as scaled longs (minor units) instead of BigDecimal.
+ * Behaves like Account, but values are only turned into BigDecimal when they pass the IAccount API.
+ * The *Minor methods work directly on minor units and don't allocate at all.
+ */
+public class LongAccount implements IAccount {
+
+    /**
+     * Current balance in minor units
+     */
+    private long balance;
+    /**
+     * Currency used in this account, e.g. "SEK", "EUR", or "USD"
+     */
+    private CurrencyCode currency;
+    /**
+     * Number of decimals of the currency, balance 1234 with scale 2 means 12.34
+     */
+    private int scale;
+    /**
+     * Non-negative number of minor units the account can be "in the red"
+     * The minimum balance of the account is -1 * max_overdrawn
+     */
+    private long max_overdrawn;
+
+    public LongAccount() {
+        this.balance = 0;
+        this.currency = CurrencyCode.SEK;
+        this.scale = this.currency.getScale();
+        this.max_overdrawn = 0;
+    }
+
+    public LongAccount(BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
+        this.currency = CurrencyCode.of(currency);
+        this.scale = this.currency.getScale();
+        this.balance = MinorUnits.toMinor(starting_balance, this.scale);
+        this.max_overdrawn = Math.max(0, MinorUnits.toMinor(max_overdrawn, this.scale));
+    }
+
+    public LongAccount(long starting_balance_minor, String currency, long max_overdrawn_minor) {
+        this.balance = starting_balance_minor;
+        this.currency = CurrencyCode.of(currency);
+        this.scale = this.currency.getScale();
+        this.max_overdrawn = Math.max(0, max_overdrawn_minor);
+    }
+
+    public BigDecimal getMaxOverdrawn() {
+        return MinorUnits.toDecimal(this.max_overdrawn, this.scale);
+    }
+
+    public long getMaxOverdrawnMinor() {
+        return this.max_overdrawn;
+    }
+
+    public void setMaxOverdrawn(BigDecimal max_overdrawn) {
+        setMaxOverdrawnMinor(MinorUnits.toMinor(max_overdrawn, this.scale));
+    }
+
+    public void setMaxOverdrawnMinor(long max_overdrawn) {
+        this.max_overdrawn = Math.max(0, max_overdrawn);
+    }
+
+    public String getCurrency() {
+        return currency.getCode();
+    }
+
+    public CurrencyCode getCurrencyCode() {
+        return currency;
+    }
+
+    /*
+     * Changes the currency code. Only allowed between currencies with the same number of decimals,
+     * otherwise the stored minor units would change meaning.
+     * */
+    public void setCurrency(String currency) {
+        CurrencyCode newCurrency = CurrencyCode.of(currency);
+        if (newCurrency.getScale() != this.scale) {
+            throw new IllegalArgumentException("Currency " + currency + " uses a different scale, use convertToCurrency");
+        }
+        this.currency = newCurrency;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public BigDecimal getBalance() {
+        return MinorUnits.toDecimal(this.balance, this.scale);
+    }
+
+    public long getBalanceMinor() {
+        return balance;
+    }
+
+    @Override
+    public void setBalance(BigDecimal balance) {
+        setBalanceMinor(MinorUnits.toMinor(balance, this.scale));
+    }
+
+    public void setBalanceMinor(long balance) {
+        if (balance >= -this.max_overdrawn) {
+            this.balance = balance;
+        }
+    }
+
+    @Override
+    public BigDecimal withdraw(BigDecimal requestedAmount) {
+        if (requestedAmount.signum() <= 0) {
+            return getBalance();
+        }
+        withdrawMinor(MinorUnits.toMinor(requestedAmount, this.scale));
+        return getBalance();
+    }
+
+    /*
+     * Same as withdraw, but with the amount and the returned balance in minor units
+     * */
+    public long withdrawMinor(long requestedAmount) {
+        if (requestedAmount <= 0) {
+            return this.balance;
+        }
+        long newBalance;
+        try {
+            newBalance = MinorUnits.subtract(this.balance, requestedAmount);
+        } catch (ArithmeticException e) {
+            return this.balance; // Below Long.MIN_VALUE, so below any limit as well
+        }
+        // Compared with -max_overdrawn instead of adding it to the balance, which could overflow
+        if (newBalance >= -this.max_overdrawn) {
+            setBalanceMinor(newBalance);
+        }
+        return this.balance;
+    }
+
+    @Override
+    public BigDecimal deposit(BigDecimal amount_to_deposit) {
+        if (amount_to_deposit.signum() <= 0) {
+            return getBalance();
+        }
+        depositMinor(MinorUnits.toMinor(amount_to_deposit, this.scale));
+        return getBalance();
+    }
+
+    /*
+     * Same as deposit, but with the amount and the returned balance in minor units
+     * */
+    public long depositMinor(long amount_to_deposit) {
+        if (amount_to_deposit <= 0) {
+            return this.balance;
+        }
+        setBalanceMinor(MinorUnits.add(this.balance, amount_to_deposit));
+        return this.balance;
+    }
+
+    @Override
+    // Converts the same way as Account, the result is rounded (half even) to the decimals of the new currency.
+    public boolean convertToCurrency(String currencyCode, double rate) {
+        if (rate <= 0) {
+            return false;
+        }
+        return convertToCurrency(currencyCode, new BigDecimal(Double.toString(rate)));
+    }
+
+    @Override
+    public boolean convertToCurrency(String currencyCode, BigDecimal decimalRate) {
+        if (decimalRate.signum() <= 0) {
+            return false;
+        }
+        CurrencyCode newCurrency = CurrencyCode.of(currencyCode);
+        int newScale = newCurrency.getScale();
+        long newMaxOverdrawn = MinorUnits.convert(this.max_overdrawn, this.scale, decimalRate, newScale);
+        long newBalance = MinorUnits.convert(this.balance, this.scale, decimalRate, newScale);
+        this.currency = newCurrency;
+        this.scale = newScale;
+        this.setMaxOverdrawnMinor(newMaxOverdrawn);
+        this.setBalanceMinor(newBalance);
+        return true;
+    }
+
+    @Override
+    public void TransferToAccount(IAccount to_account) {
+        if (this.balance <= 0) {
+            return; // Can't transfer negative funds
+        } else if (this.currency != to_account.getCurrencyCode()) {
+            return; // Can't transfer to an account with different currency
+        }
+        if (to_account instanceof LongAccount) {
+            ((LongAccount) to_account).depositMinor(this.balance);
+        } else {
+            to_account.deposit(getBalance());
+        }
+        this.setBalanceMinor(0);
+    }
+
+    @Override
+    public BigDecimal withdrawAll() {
+        if (this.balance <= 0) {
+            return getBalance();
+        }
+        withdrawMinor(this.balance);
+        return getBalance();
+    }
+}
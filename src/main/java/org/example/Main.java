@@ -1,7 +1,85 @@
 package org.example;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the account command service:
+ * <pre>
+ * serve [port] [shards]                          accept commands on a socket on localhost (default port 7070)
+ * file path [shards]                             run the commands in a file, replies go to standard output
+ * load [clients] [commands] [accounts] [shards]  measure latency with the LoadGenerator against a local server
+ * </pre>
+ * Every load client holds a connection and the server holds the other end, so 100 000 clients (the default)
+ * need an open file limit (ulimit -n) above 200 000.
+ * See AccountCommand for the command format.
+ */
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Hello world!");
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "";
+        switch (mode) {
+            case "serve" -> serve(intArg(args, 1, 7070), intArg(args, 2, Runtime.getRuntime().availableProcessors()));
+            case "file" -> {
+                if (args.length < 2) {
+                    usage();
+                    return;
+                }
+                file(Path.of(args[1]), intArg(args, 2, Runtime.getRuntime().availableProcessors()));
+            }
+            case "load" -> load(intArg(args, 1, 100_000), intArg(args, 2, 10), intArg(args, 3, 10_000),
+                    intArg(args, 4, Runtime.getRuntime().availableProcessors()));
+            default -> usage();
+        }
+    }
+
+    private static void serve(int port, int shards) throws IOException, InterruptedException {
+        CommandProcessor processor = new CommandProcessor(shards);
+        CommandServer server = new CommandServer(processor);
+        int bound = server.listen(port);
+        System.out.println("Listening on localhost:" + bound + " with " + processor.getShardCount() + " shards");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // Exiting anyway
+            }
+            processor.close();
+        }));
+        Thread.currentThread().join();
+    }
+
+    private static void file(Path path, int shards) throws IOException {
+        try (CommandProcessor processor = new CommandProcessor(shards);
+             CommandServer server = new CommandServer(processor);
+             BufferedReader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+            server.process(in, out);
+        }
+    }
+
+    private static void load(int clients, int commands, int accounts, int shards) throws IOException {
+        try (CommandProcessor processor = new CommandProcessor(shards);
+             CommandServer server = new CommandServer(processor)) {
+            LoadGenerator generator = new LoadGenerator(server.listen(0), accounts);
+            // A short warmup run so the measured run isn't dominated by JIT compilation
+            generator.run(Math.min(clients, 1000), commands, 1);
+            System.out.println(generator.run(clients, commands, 2));
+        }
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private static void usage() {
+        System.out.println("Usage: Main serve [port] [shards]");
+        System.out.println("       Main file path [shards]");
+        System.out.println("       Main load [clients] [commands per client] [accounts] [shards]");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helpers for holding money as a scaled long ("minor units"), e.g. 12.34 SEK is stored as 1234.
+ * All arithmetic is overflow checked and throws ArithmeticException instead of wrapping around.
+ */
+final class MinorUnits {
+
+    /**
+     * Powers of ten up to 10^18, the largest one that fits in a long
+     */
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1L;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10L;
+        }
+    }
+
+    private MinorUnits() {
+    }
+
+    /*
+     * Converts an amount to minor units.
+     * Throws ArithmeticException if the amount has more decimals than the scale allows or doesn't fit in a long.
+     * */
+    static long toMinor(BigDecimal amount, int scale) {
+        return amount.movePointRight(scale).longValueExact();
+    }
+
+    /*
+     * Converts minor units back to a BigDecimal without trailing zeroes, so 10000 with scale 2 becomes 100
+     * (the same form Account produces for whole amounts).
+     * */
+    static BigDecimal toDecimal(long minor, int scale) {
+        long unit = POWERS_OF_TEN[scale];
+        if (minor % unit == 0) {
+            return BigDecimal.valueOf(minor / unit);
+        }
+        return BigDecimal.valueOf(minor, scale).stripTrailingZeros();
+    }
+
+    /*
+     * Multiplies an amount in minor units by a conversion rate and rounds (half even) to the minor units of the new scale
+     * */
+    static long convert(long minor, int scale, BigDecimal rate, int newScale) {
+        return BigDecimal.valueOf(minor, scale)
+                .multiply(rate)
+                .setScale(newScale, RoundingMode.HALF_EVEN)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+}
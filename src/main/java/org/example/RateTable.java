@@ -0,0 +1,136 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of parsed conversion rates per currency pair.
+ * A rate is parsed into a BigDecimal once when it is put, lookups are lock-free and don't allocate.
+ * Every put gets a new version number, so a caller holding an ExchangeRate can check if it is still current.
+ * When the table is full the rate that was updated longest ago is evicted.
+ */
+public class RateTable {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * from currency -> to currency -> rate, nested so lookups don't have to build a key object
+     */
+    private final Map<String, Map<String, ExchangeRate>> rates = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    public RateTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RateTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /*
+     * Stores a rate, parsed the same way Account.convertToCurrency(String, double) parses it.
+     * */
+    public ExchangeRate put(String fromCurrency, String toCurrency, double rate) {
+        return put(fromCurrency, toCurrency, new BigDecimal(Double.toString(rate)));
+    }
+
+    public ExchangeRate put(String fromCurrency, String toCurrency, BigDecimal rate) {
+        if (rate.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("rate must be positive: " + rate);
+        }
+        ExchangeRate exchangeRate = new ExchangeRate(CurrencyCode.of(fromCurrency), CurrencyCode.of(toCurrency), rate, versions.incrementAndGet());
+        ExchangeRate previous = rates.computeIfAbsent(fromCurrency, k -> new ConcurrentHashMap<>()).put(toCurrency, exchangeRate);
+        if (previous == null && size.incrementAndGet() > capacity) {
+            evictOldest();
+        }
+        return exchangeRate;
+    }
+
+    /*
+     * Returns the cached rate, or null if there is none for this pair
+     * */
+    public ExchangeRate get(String fromCurrency, String toCurrency) {
+        Map<String, ExchangeRate> to = rates.get(fromCurrency);
+        return to == null ? null : to.get(toCurrency);
+    }
+
+    /*
+     * Returns true if the rate is still the one stored in the table
+     * */
+    public boolean isCurrent(ExchangeRate rate) {
+        return get(rate.getFromCurrency(), rate.getToCurrency()) == rate;
+    }
+
+    /*
+     * Converts the account to toCurrency using the cached rate.
+     * Returns false if no rate from the account's currency is cached.
+     * */
+    public boolean convert(IAccount account, String toCurrency) {
+        ExchangeRate rate = get(account.getCurrency(), toCurrency);
+        if (rate == null) {
+            return false;
+        }
+        return rate.convert(account);
+    }
+
+    public boolean remove(String fromCurrency, String toCurrency) {
+        Map<String, ExchangeRate> to = rates.get(fromCurrency);
+        if (to != null && to.remove(toCurrency) != null) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Removes every rate whose version is lower than the given one, returns how many were removed
+     * */
+    public int evictOlderThan(long version) {
+        int removed = 0;
+        for (Map<String, ExchangeRate> to : rates.values()) {
+            for (ExchangeRate rate : to.values()) {
+                if (rate.getVersion() < version && to.remove(rate.getToCurrency(), rate)) {
+                    size.decrementAndGet();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /*
+     * Latest version handed out by put
+     * */
+    public long currentVersion() {
+        return versions.get();
+    }
+
+    private void evictOldest() {
+        ExchangeRate oldest = null;
+        for (Map<String, ExchangeRate> to : rates.values()) {
+            for (ExchangeRate rate : to.values()) {
+                if (oldest == null || rate.getVersion() < oldest.getVersion()) {
+                    oldest = rate;
+                }
+            }
+        }
+        if (oldest != null) {
+            Map<String, ExchangeRate> to = rates.get(oldest.getFromCurrency());
+            if (to != null && to.remove(oldest.getToCurrency(), oldest)) {
+                size.decrementAndGet();
+            }
+        }
+    }
+}
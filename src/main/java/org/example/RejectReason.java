@@ -0,0 +1,39 @@
+package org.example;
+
+/**
+ * Why an IAccount operation left the account unchanged
+ */
+public enum RejectReason {
+    /**
+     * The amount was zero or negative
+     */
+    INVALID_AMOUNT,
+    /**
+     * The withdrawal would take the balance below -max_overdrawn
+     */
+    INSUFFICIENT_FUNDS,
+    /**
+     * withdrawAll or TransferToAccount on an account with a balance of zero or less
+     */
+    NO_FUNDS,
+    /**
+     * The conversion rate was zero or negative
+     */
+    INVALID_RATE,
+    /**
+     * The accounts of a transfer hold different currencies
+     */
+    CURRENCY_MISMATCH,
+    /**
+     * A transfer from an account to itself
+     */
+    SAME_ACCOUNT,
+    /**
+     * The receiving account didn't accept the deposit, e.g. because its balance stays below -max_overdrawn
+     */
+    DEPOSIT_REJECTED,
+    /**
+     * The operation was rejected for a reason not listed above, e.g. by the account implementation
+     */
+    OTHER
+}
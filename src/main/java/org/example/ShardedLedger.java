@@ -0,0 +1,353 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Accounts partitioned over a fixed number of shards, each owned by one writer thread.
+ * An account id is hashed to its shard, and only that shard's writer ever touches the account,
+ * so the accounts can be plain Accounts and no locks are taken: other threads hand work to a writer through
+ * its lock-free queue, and the writer runs it in a loop that only spins or parks when the queue is empty.
+ * Shards share nothing, so throughput grows with the number of shards as long as there are cores to run them.
+ *
+ * A transfer between two shards is done with messages: the source writer takes the balance out of the source account
+ * and sends it to the target writer, which deposits it, or sends it back if the target can't take it.
+ */
+public class ShardedLedger implements AutoCloseable {
+
+    /**
+     * Work for a writer thread. It gets the accounts of its shard by id, which are only valid on that thread.
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(Map<Long, IAccount> accounts);
+    }
+
+    /**
+     * Spins before a writer with an empty queue parks, most of the time new work arrives within that
+     */
+    private static final int SPINS_BEFORE_PARK = 1000;
+
+    private final Shard[] shards;
+    private final int mask;
+    private final TransactionJournal.AccountFactory factory;
+    /**
+     * Operations submitted but not completed, close() waits for them since a transfer still sends messages
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    public ShardedLedger(int shard_count) {
+        this(shard_count, Account::new);
+    }
+
+    /*
+     * The number of shards is rounded up to a power of two, accounts added with create() are made by the factory
+     * */
+    public ShardedLedger(int shard_count, TransactionJournal.AccountFactory factory) {
+        if (shard_count <= 0) {
+            throw new IllegalArgumentException("shard_count must be positive");
+        }
+        int size = Integer.highestOneBit(shard_count);
+        if (size < shard_count) {
+            size <<= 1;
+        }
+        this.factory = factory;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            shards[i] = new Shard("ledger-shard-" + i);
+        }
+        this.mask = size - 1;
+        for (Shard shard : shards) {
+            shard.writer.start();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /*
+     * Spreads sequential ids evenly over the shards
+     * */
+    public int shardOf(long account_id) {
+        long h = account_id * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    /*
+     * Runs the task on the writer of the account's shard, the future completes with its result
+     * (or exceptionally with what it threw)
+     * */
+    public <T> CompletableFuture<T> submit(long account_id, Task<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pending.incrementAndGet();
+        post(shardOf(account_id), accounts -> {
+            try {
+                complete(result, task.run(accounts));
+            } catch (RuntimeException e) {
+                fail(result, e);
+            }
+        });
+        return result;
+    }
+
+    /*
+     * Adds an account, completes with false if there already is one with the id
+     * */
+    public CompletableFuture<Boolean> create(long account_id, BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
+        return submit(account_id, accounts -> accounts.putIfAbsent(account_id,
+                factory.create(starting_balance, currency, max_overdrawn)) == null);
+    }
+
+    /*
+     * Moves the whole balance of one account to the other (like TransferToAccount, but money the target doesn't take
+     * goes back), completes with SUCCESS or why nothing was moved: NO_FUNDS if the source balance isn't positive,
+     * SAME_ACCOUNT, CURRENCY_MISMATCH, INSUFFICIENT_FUNDS if the source refused the withdrawal,
+     * or DEPOSIT_REJECTED if the target didn't accept the money. Completes exceptionally if an account doesn't exist
+     * or an account throws; money that already left the source is sent back first.
+     * */
+    public CompletableFuture<TransferResult> transfer(long from_id, long to_id) {
+        int fromShard = shardOf(from_id);
+        int toShard = shardOf(to_id);
+        if (fromShard == toShard) {
+            return submit(from_id, accounts -> transferWithinShard(accounts, from_id, to_id));
+        }
+        CompletableFuture<TransferResult> result = new CompletableFuture<>();
+        pending.incrementAndGet();
+        post(fromShard, accounts -> {
+            BigDecimal amount;
+            CurrencyCode currency;
+            try {
+                IAccount from = accounts.get(from_id);
+                if (from == null) {
+                    fail(result, noAccount(from_id));
+                    return;
+                }
+                amount = from.getBalance();
+                if (amount.signum() <= 0) {
+                    complete(result, TransferResult.NO_FUNDS);
+                    return;
+                }
+                currency = from.getCurrencyCode();
+                if (!from.tryWithdraw(amount)) {
+                    complete(result, TransferResult.INSUFFICIENT_FUNDS);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                fail(result, e);
+                return;
+            }
+            post(toShard, targetAccounts -> {
+                try {
+                    IAccount to = targetAccounts.get(to_id);
+                    if (to == null) {
+                        refund(fromShard, from_id, amount, result, null, noAccount(to_id));
+                    } else if (to.getCurrencyCode() != currency) {
+                        refund(fromShard, from_id, amount, result, TransferResult.CURRENCY_MISMATCH, null);
+                    } else if (!to.tryDeposit(amount)) {
+                        refund(fromShard, from_id, amount, result, TransferResult.DEPOSIT_REJECTED, null);
+                    } else {
+                        complete(result, TransferResult.SUCCESS);
+                    }
+                } catch (RuntimeException e) {
+                    // Nothing was deposited (a deposit either goes through or throws), so the money goes back
+                    refund(fromShard, from_id, amount, result, null, e);
+                }
+            });
+        });
+        return result;
+    }
+
+    private static TransferResult transferWithinShard(Map<Long, IAccount> accounts, long from_id, long to_id) {
+        IAccount from = accounts.get(from_id);
+        IAccount to = accounts.get(to_id);
+        if (from == null) {
+            throw noAccount(from_id);
+        } else if (to == null) {
+            throw noAccount(to_id);
+        } else if (from == to) {
+            return TransferResult.SAME_ACCOUNT;
+        } else if (from.getBalance().signum() <= 0) {
+            return TransferResult.NO_FUNDS;
+        } else if (from.getCurrencyCode() != to.getCurrencyCode()) {
+            return TransferResult.CURRENCY_MISMATCH;
+        }
+        // Same steps as across shards, only without the messages
+        BigDecimal amount = from.getBalance();
+        if (!from.tryWithdraw(amount)) {
+            return TransferResult.INSUFFICIENT_FUNDS;
+        }
+        boolean deposited;
+        try {
+            deposited = to.tryDeposit(amount);
+        } catch (RuntimeException e) {
+            putBack(from, from_id, amount, e);
+            throw e;
+        }
+        if (!deposited) {
+            putBack(from, from_id, amount, null);
+            return TransferResult.DEPOSIT_REJECTED;
+        }
+        return TransferResult.SUCCESS;
+    }
+
+    /*
+     * Deposits the money of a failed transfer back into the source account on its own shard, see refund
+     * */
+    private static void putBack(IAccount from, long from_id, BigDecimal amount, RuntimeException failure) {
+        boolean deposited;
+        try {
+            deposited = from.tryDeposit(amount);
+        } catch (RuntimeException e) {
+            IllegalStateException refundFailure = refundFailed(from_id, amount, failure);
+            refundFailure.addSuppressed(e);
+            throw refundFailure;
+        }
+        if (!deposited) {
+            throw refundFailed(from_id, amount, failure);
+        }
+    }
+
+    /*
+     * Sends the money of a failed transfer back to the source account, the transfer completes once it is back.
+     * If the source can't take it back the transfer completes exceptionally with an IllegalStateException
+     * that names the amount, so the money can be accounted for.
+     * */
+    private void refund(int fromShard, long from_id, BigDecimal amount, CompletableFuture<TransferResult> result,
+                        TransferResult outcome, RuntimeException failure) {
+        post(fromShard, accounts -> {
+            IAccount from = accounts.get(from_id);
+            try {
+                if (from == null || !from.tryDeposit(amount)) {
+                    fail(result, refundFailed(from_id, amount, failure));
+                    return;
+                }
+            } catch (RuntimeException e) {
+                IllegalStateException refundFailure = refundFailed(from_id, amount, failure);
+                refundFailure.addSuppressed(e);
+                fail(result, refundFailure);
+                return;
+            }
+            if (failure != null) {
+                fail(result, failure);
+            } else {
+                complete(result, outcome);
+            }
+        });
+    }
+
+    private static IllegalStateException refundFailed(long from_id, BigDecimal amount, RuntimeException cause) {
+        return new IllegalStateException("Could not refund " + amount.toPlainString() + " to account " + from_id, cause);
+    }
+
+    private static IllegalArgumentException noAccount(long account_id) {
+        return new IllegalArgumentException("No account with id " + account_id);
+    }
+
+    // Completed before pending is decremented, so work a caller chains onto the result is counted before close() sees 0.
+    // Only the call that completes the future decrements, so an operation is never counted twice.
+    private <T> void complete(CompletableFuture<T> result, T value) {
+        if (result.complete(value)) {
+            pending.decrementAndGet();
+        }
+    }
+
+    private void fail(CompletableFuture<?> result, Throwable failure) {
+        if (result.completeExceptionally(failure)) {
+            pending.decrementAndGet();
+        }
+    }
+
+    private void post(int shard, Consumer<Map<Long, IAccount>> message) {
+        shards[shard].post(message);
+    }
+
+    /*
+     * Waits for the operations already submitted, then stops the writers
+     * */
+    @Override
+    public void close() {
+        while (pending.get() > 0) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.writer);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * One partition: its accounts, its queue of messages and the writer thread that owns both
+     */
+    private static final class Shard {
+
+        /**
+         * Only read and written by the writer thread
+         */
+        private final Map<Long, IAccount> accounts = new HashMap<>();
+        private final Queue<Consumer<Map<Long, IAccount>>> queue = new ConcurrentLinkedQueue<>();
+        private final Thread writer;
+        private volatile boolean parked;
+        private volatile boolean running = true;
+
+        Shard(String name) {
+            this.writer = new Thread(this::loop, name);
+            this.writer.setDaemon(true);
+        }
+
+        void post(Consumer<Map<Long, IAccount>> message) {
+            queue.offer(message);
+            if (parked) {
+                LockSupport.unpark(writer);
+            }
+        }
+
+        private void loop() {
+            int idle = 0;
+            while (running || !queue.isEmpty()) {
+                Consumer<Map<Long, IAccount>> message = queue.poll();
+                if (message != null) {
+                    idle = 0;
+                    try {
+                        message.accept(accounts);
+                    } catch (RuntimeException e) {
+                        // Every message completes its own future, so this is a bug in the ledger. It is reported to
+                        // the writer's uncaught exception handler, but must not stop the shard: its other accounts
+                        // are still served.
+                        writer.getUncaughtExceptionHandler().uncaughtException(writer, e);
+                    }
+                } else if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    parked = true;
+                    // A message posted before parked was set wouldn't unpark us, so look once more
+                    if (queue.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    parked = false;
+                    idle = 0;
+                }
+            }
+        }
+    }
+}
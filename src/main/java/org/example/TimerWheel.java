@@ -0,0 +1,190 @@
+package org.example;
+
+/**
+ * Hashed timer wheel: timeouts are put in one of a fixed number of buckets by their deadline tick,
+ * and every tick only the bucket of that tick is looked at. Scheduling and cancelling are O(1),
+ * and a timeout is linked straight into its bucket (it is its own list node), so a pending timeout costs no memory
+ * beyond the object that is timed out. Deadlines are rounded up to whole ticks.
+ *
+ * The wheel has its own time, which only moves when advanceTo is called, either by the daemon thread
+ * started with start() or directly (e.g. by tests). Expired timeouts run on the thread that advances the wheel,
+ * outside the wheel's lock, so expire() may call back into code that schedules or cancels.
+ * An expire() that throws is reported to that thread's uncaught exception handler, the other timeouts still expire.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    /**
+     * Something that can be scheduled on a wheel, at most once at a time
+     */
+    public abstract static class Timeout {
+
+        private Timeout previous;
+        private Timeout next;
+        private long deadlineTick;
+        /**
+         * Bucket the timeout is linked in, -1 when it is not scheduled
+         */
+        private int bucket = -1;
+
+        /*
+         * Called when the deadline has passed and the timeout wasn't cancelled
+         * */
+        protected abstract void expire();
+    }
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final Timeout[] buckets;
+    private final int mask;
+    private long currentTick;
+    private int size;
+    private volatile Thread ticker;
+
+    /*
+     * A wheel whose time starts at start_millis, with wheel_size (rounded up to a power of two) buckets of tick_millis.
+     * Deadlines further away than wheel_size ticks go around the wheel more than once.
+     * */
+    public TimerWheel(long tick_millis, int wheel_size, long start_millis) {
+        if (tick_millis <= 0) {
+            throw new IllegalArgumentException("tick_millis must be positive");
+        } else if (wheel_size <= 0) {
+            throw new IllegalArgumentException("wheel_size must be positive");
+        }
+        int length = Integer.highestOneBit(wheel_size);
+        if (length < wheel_size) {
+            length <<= 1;
+        }
+        this.tickMillis = tick_millis;
+        this.startMillis = start_millis;
+        this.buckets = new Timeout[length];
+        this.mask = length - 1;
+    }
+
+    /*
+     * A wheel on wall clock time, advanced by a daemon thread every tick
+     * */
+    public static TimerWheel start(long tick_millis, int wheel_size) {
+        TimerWheel wheel = new TimerWheel(tick_millis, wheel_size, System.currentTimeMillis());
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(tick_millis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                wheel.advanceTo(System.currentTimeMillis());
+            }
+        }, "timer-wheel");
+        thread.setDaemon(true);
+        wheel.ticker = thread;
+        thread.start();
+        return wheel;
+    }
+
+    /*
+     * The wheel's current time
+     * */
+    public synchronized long now() {
+        return startMillis + currentTick * tickMillis;
+    }
+
+    /*
+     * Number of timeouts scheduled
+     * */
+    public synchronized int size() {
+        return size;
+    }
+
+    /*
+     * Schedules the timeout to expire delay_millis from the wheel's current time, at least one tick from now.
+     * Throws IllegalStateException if it is already scheduled.
+     * */
+    public synchronized void schedule(Timeout timeout, long delay_millis) {
+        if (timeout.bucket >= 0) {
+            throw new IllegalStateException("Timeout is already scheduled");
+        }
+        long ticks = Math.max(1, (Math.max(0, delay_millis) + tickMillis - 1) / tickMillis);
+        timeout.deadlineTick = currentTick + ticks;
+        int bucket = (int) (timeout.deadlineTick & mask);
+        timeout.bucket = bucket;
+        timeout.previous = null;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+        buckets[bucket] = timeout;
+        size++;
+    }
+
+    /*
+     * Removes the timeout so it never expires, returns false if it wasn't scheduled (or has already expired)
+     * */
+    public synchronized boolean cancel(Timeout timeout) {
+        if (timeout.bucket < 0) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        size--;
+    }
+
+    /*
+     * Moves the wheel's time forward to now_millis and expires every timeout whose deadline has passed
+     * */
+    public void advanceTo(long now_millis) {
+        Timeout expired = null;
+        synchronized (this) {
+            long targetTick = (now_millis - startMillis) / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                Timeout timeout = buckets[(int) (currentTick & mask)];
+                while (timeout != null) {
+                    Timeout next = timeout.next;
+                    if (timeout.deadlineTick <= currentTick) {
+                        unlink(timeout);
+                        // Collected in a list through next, so nothing is allocated
+                        timeout.next = expired;
+                        expired = timeout;
+                    }
+                    timeout = next;
+                }
+            }
+        }
+        while (expired != null) {
+            Timeout next = expired.next;
+            expired.next = null;
+            try {
+                expired.expire();
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+            expired = next;
+        }
+    }
+
+    /*
+     * Stops the daemon thread, if the wheel was started with start()
+     * */
+    @Override
+    public void close() {
+        Thread thread = ticker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,481 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of account operations, written through a memory-mapped file.
+ * Appending only copies the record into the mapped memory, a background thread forces the written
+ * pages to disk every flush interval (group commit), so durability doesn't cost a disk write per operation.
+ * Call sync() when a specific point has to be on disk before continuing.
+ *
+ * Opening an existing journal replays it and rebuilds every account, after that new operations are appended.
+ * To keep startup fast, write snapshots now and then (see AccountSnapshot) and open the journal with them,
+ * then only the records after the last snapshot are replayed.
+ * The file is mapped in chunks, a record never spans two chunks.
+ *
+ * File header: int magic, short format version, int chunk size. A journal has to be opened with the chunk size it
+ * was written with, otherwise the records would be looked for in the wrong places.
+ * Record layout: int length, byte type, long account id, type specific payload, int CRC32C of type to payload.
+ * A length of 0 marks the end of the journal and -1 means the rest of the chunk is unused.
+ * A record that was only partly written when the process died fails its checksum, replay stops before it
+ * and cuts the journal off there, so the operations before it are kept and new ones are appended in its place.
+ */
+public class TransactionJournal implements AutoCloseable {
+
+    /**
+     * Creates the account a CREATE record describes, e.g. Account::new
+     */
+    @FunctionalInterface
+    public interface AccountFactory {
+        IAccount create(BigDecimal starting_balance, String currency, BigDecimal max_overdrawn);
+    }
+
+    static final byte CREATE = 1;
+    static final byte DEPOSIT = 2;
+    static final byte WITHDRAW = 3;
+    static final byte WITHDRAW_ALL = 4;
+    static final byte CONVERT = 5;
+    static final byte TRANSFER = 6;
+    static final byte SET_BALANCE = 7;
+
+    /**
+     * Account id used in TRANSFER records when the receiving account isn't journaled
+     */
+    static final long NOT_JOURNALED = -1;
+
+    static final int MAGIC = 0x4A524E4C; // "JRNL"
+    static final short FORMAT_VERSION = 1;
+
+    private static final int FILE_HEADER_SIZE = Integer.BYTES + Short.BYTES + Integer.BYTES;
+    private static final int END = 0;
+    private static final int SKIP_TO_NEXT_CHUNK = -1;
+    private static final int HEADER_SIZE = Integer.BYTES + 1 + Long.BYTES;
+    private static final int CHECKSUM_SIZE = Integer.BYTES;
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+    private final FileChannel channel;
+    private final AccountFactory factory;
+    private final int chunkSize;
+    private final Map<Long, JournaledAccount> accounts = new LinkedHashMap<>();
+    /**
+     * Ids of the accounts changed since the last snapshot
+     */
+    private final Set<Long> changed = new HashSet<>();
+    private final ScheduledExecutorService flusher;
+
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private volatile boolean dirty;
+    private boolean closed;
+
+    private TransactionJournal(FileChannel channel, AccountFactory factory, int chunkSize, long flushIntervalMillis) {
+        this.channel = channel;
+        this.factory = factory;
+        this.chunkSize = chunkSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushIfDirty, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static TransactionJournal open(Path file) throws IOException {
+        return open(file, Account::new, DEFAULT_CHUNK_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /*
+     * Opens (or creates) the journal at file and replays it, accounts are rebuilt with the factory.
+     * */
+    public static TransactionJournal open(Path file, AccountFactory factory, int chunkSize, long flushIntervalMillis) throws IOException {
+        return open(file, List.of(), factory, chunkSize, flushIntervalMillis);
+    }
+
+    /*
+     * Opens the journal at file starting from snapshots: a full snapshot followed by the incremental snapshots
+     * written after it, in the order they were written. Only the journal records after the last snapshot are replayed.
+     * */
+    public static TransactionJournal open(Path file, List<Path> snapshots, AccountFactory factory, int chunkSize,
+                                          long flushIntervalMillis) throws IOException {
+        if (chunkSize < 64) {
+            throw new IllegalArgumentException("chunkSize must be at least 64 bytes");
+        }
+        Map<Long, IAccount> restored = new LinkedHashMap<>();
+        long position = 0;
+        for (Path snapshot : snapshots) {
+            position = AccountSnapshot.load(snapshot, factory, restored);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            checkHeader(file, channel, chunkSize);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        TransactionJournal journal = new TransactionJournal(channel, factory, chunkSize, flushIntervalMillis);
+        for (Map.Entry<Long, IAccount> entry : restored.entrySet()) {
+            journal.accounts.put(entry.getKey(), new JournaledAccount(entry.getKey(), entry.getValue(), journal));
+        }
+        journal.replay(position);
+        return journal;
+    }
+
+    /*
+     * Writes the header of a new journal, or checks the header of an existing one
+     * */
+    private static void checkHeader(Path file, FileChannel channel, int chunkSize) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        if (channel.size() == 0) {
+            header.putInt(MAGIC).putShort(FORMAT_VERSION).putInt(chunkSize).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            return;
+        }
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // Read until the header is complete or the file ends
+        }
+        header.flip();
+        if (header.remaining() < FILE_HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException("Not a transaction journal: " + file);
+        }
+        short version = header.getShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported journal format version " + version + ": " + file);
+        }
+        int written = header.getInt();
+        if (written != chunkSize) {
+            throw new IOException("Journal was written with chunk size " + written + ", not " + chunkSize + ": " + file);
+        }
+    }
+
+    /*
+     * Creates a new journaled account with the given id, fails if the id is already used
+     * */
+    public synchronized JournaledAccount create(long id, BigDecimal starting_balance, String currency, BigDecimal max_overdrawn) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Account ids must be non-negative");
+        } else if (accounts.containsKey(id)) {
+            throw new IllegalArgumentException("Account " + id + " already exists");
+        }
+        JournaledAccount account = new JournaledAccount(id, factory.create(starting_balance, currency, max_overdrawn), this);
+        begin(CREATE, id);
+        putDecimal(starting_balance);
+        putCurrency(CurrencyCode.of(currency));
+        putDecimal(max_overdrawn);
+        commit();
+        accounts.put(id, account);
+        changed.add(id);
+        return account;
+    }
+
+    public synchronized JournaledAccount account(long id) {
+        return accounts.get(id);
+    }
+
+    /*
+     * All accounts in the journal by id, in the order they were created
+     * */
+    public synchronized Map<Long, JournaledAccount> accounts() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(accounts));
+    }
+
+    /*
+     * Throws if a record with a payload of the given size can't be appended (the journal is closed or the record
+     * doesn't fit in a chunk). JournaledAccount checks this before applying an operation, so it never applies one
+     * that then can't be journaled.
+     * */
+    synchronized void checkAppend(int payload_size) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        checkLength(HEADER_SIZE + payload_size + CHECKSUM_SIZE);
+    }
+
+    private void checkLength(int length) {
+        // The end marker after the record has to fit as well
+        if (length + Integer.BYTES > chunkSize) {
+            throw new IllegalArgumentException("Record of " + length + " bytes doesn't fit in a chunk");
+        }
+    }
+
+    synchronized void appendAmount(byte type, long id, BigDecimal amount) {
+        begin(type, id);
+        putDecimal(amount);
+        commit();
+        changed.add(id);
+    }
+
+    synchronized void appendWithdrawAll(long id) {
+        begin(WITHDRAW_ALL, id);
+        commit();
+        changed.add(id);
+    }
+
+    synchronized void appendConvert(long id, CurrencyCode currency, BigDecimal rate) {
+        begin(CONVERT, id);
+        putCurrency(currency);
+        putDecimal(rate);
+        commit();
+        changed.add(id);
+    }
+
+    synchronized void appendTransfer(long id, long to_id) {
+        begin(TRANSFER, id);
+        scratch.putLong(to_id);
+        commit();
+        changed.add(id);
+        if (to_id != NOT_JOURNALED) {
+            changed.add(to_id);
+        }
+    }
+
+    /*
+     * Writes a snapshot of every account, returns the number of accounts written.
+     * Operations through the journaled accounts wait while the snapshot is written.
+     * */
+    public synchronized int writeSnapshot(Path file) throws IOException {
+        AccountSnapshot.writeFull(file, accounts, position());
+        changed.clear();
+        return accounts.size();
+    }
+
+    /*
+     * Writes a snapshot of only the accounts changed since the last snapshot, returns the number of accounts written.
+     * Same rules as writeSnapshot.
+     * */
+    public synchronized int writeIncrementalSnapshot(Path file) throws IOException {
+        List<Long> ids = new ArrayList<>(changed);
+        AccountSnapshot.writeIncremental(file, accounts, ids, position());
+        changed.clear();
+        return ids.size();
+    }
+
+    /*
+     * Forces everything appended so far to disk
+     * */
+    public void sync() {
+        MappedByteBuffer toForce;
+        synchronized (this) {
+            dirty = false;
+            toForce = chunk;
+        }
+        // Forced outside the lock so appends can go on while the pages are written
+        // (a chunk that is left behind is forced by nextChunk)
+        if (toForce != null) {
+            toForce.force();
+        }
+    }
+
+    private void flushIfDirty() {
+        if (dirty) {
+            sync();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flusher.shutdown();
+        sync();
+        closed = true;
+        channel.close();
+    }
+
+    /*
+     * Offset in the file where the next record will be written
+     * */
+    public synchronized long position() {
+        return chunkStart + chunk.position();
+    }
+
+    // --- writing ---
+
+    /*
+     * Records are built in the scratch buffer and copied into the mapped chunk by commit
+     * */
+    private void begin(byte type, long id) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        scratch.clear();
+        scratch.putInt(0); // length, filled in by commit
+        scratch.put(type);
+        scratch.putLong(id);
+    }
+
+    private void ensureScratch(int bytes) {
+        if (scratch.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + bytes));
+            scratch.flip();
+            bigger.put(scratch);
+            scratch = bigger;
+        }
+    }
+
+    private void putDecimal(BigDecimal value) {
+        ensureScratch(BinaryCodec.decimalSize(value));
+        BinaryCodec.putDecimal(scratch, value);
+    }
+
+    private void putCurrency(CurrencyCode currency) {
+        ensureScratch(BinaryCodec.CURRENCY_SIZE);
+        BinaryCodec.putCurrency(scratch, currency);
+    }
+
+    private void commit() {
+        ensureScratch(CHECKSUM_SIZE);
+        CRC32C crc = new CRC32C();
+        crc.update(scratch.array(), Integer.BYTES, scratch.position() - Integer.BYTES);
+        scratch.putInt((int) crc.getValue());
+        int length = scratch.position();
+        checkLength(length);
+        scratch.putInt(0, length);
+        // Keep room for the end marker after the record
+        if (chunk.remaining() < length + Integer.BYTES) {
+            chunk.putInt(SKIP_TO_NEXT_CHUNK);
+            nextChunk();
+        }
+        scratch.flip();
+        chunk.put(scratch);
+        dirty = true;
+    }
+
+    private void nextChunk() {
+        chunk.force();
+        mapChunk(chunkStart + chunkSize);
+    }
+
+    private void mapChunk(long start) {
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, start, chunkSize);
+            chunkStart = start;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // --- replay ---
+
+    private void replay(long from) throws IOException {
+        from = Math.max(from, FILE_HEADER_SIZE);
+        long start = from - from % chunkSize;
+        mapChunk(start);
+        chunk.position((int) (from - start));
+        while (true) {
+            if (chunk.remaining() < Integer.BYTES) {
+                mapChunk(chunkStart + chunkSize);
+                continue;
+            }
+            int length = chunk.getInt(chunk.position());
+            if (length == END) {
+                return;
+            } else if (length == SKIP_TO_NEXT_CHUNK) {
+                mapChunk(chunkStart + chunkSize);
+                continue;
+            } else if (!isValidRecord(length)) {
+                truncate();
+                return;
+            }
+            ByteBuffer record = chunk.slice(chunk.position(), length);
+            chunk.position(chunk.position() + length);
+            apply(record);
+        }
+    }
+
+    /*
+     * Whether a complete record of the length starts at the chunk's position, i.e. its length fits and its checksum matches
+     * */
+    private boolean isValidRecord(int length) {
+        // The end marker after the record has to fit as well
+        if (length < HEADER_SIZE + CHECKSUM_SIZE || length > chunk.remaining() - Integer.BYTES) {
+            return false;
+        }
+        int checked = length - Integer.BYTES - CHECKSUM_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(chunk.slice(chunk.position() + Integer.BYTES, checked));
+        return (int) crc.getValue() == chunk.getInt(chunk.position() + length - CHECKSUM_SIZE);
+    }
+
+    /*
+     * Cuts the journal off at the chunk's position: everything after it in the chunk is zeroed, so the torn record
+     * can't be mistaken for a complete one once new records are written over its start
+     * */
+    private void truncate() {
+        int position = chunk.position();
+        while (chunk.hasRemaining()) {
+            chunk.put((byte) END);
+        }
+        chunk.position(position);
+        chunk.force();
+    }
+
+    private void apply(ByteBuffer record) throws IOException {
+        record.getInt(); // length
+        byte type = record.get();
+        long id = record.getLong();
+        // Records after the last snapshot are changes the next incremental snapshot has to include
+        changed.add(id);
+        if (type == CREATE) {
+            BigDecimal balance = BinaryCodec.getDecimal(record);
+            String currency = BinaryCodec.getCurrency(record);
+            BigDecimal maxOverdrawn = BinaryCodec.getDecimal(record);
+            accounts.put(id, new JournaledAccount(id, factory.create(balance, currency, maxOverdrawn), this));
+            return;
+        }
+        JournaledAccount account = accounts.get(id);
+        if (account == null) {
+            throw new IOException("Journal refers to unknown account " + id);
+        }
+        IAccount target = account.delegate();
+        switch (type) {
+            case DEPOSIT -> target.deposit(BinaryCodec.getDecimal(record));
+            case WITHDRAW -> target.withdraw(BinaryCodec.getDecimal(record));
+            case WITHDRAW_ALL -> target.withdrawAll();
+            case SET_BALANCE -> target.setBalance(BinaryCodec.getDecimal(record));
+            case CONVERT -> {
+                String currency = BinaryCodec.getCurrency(record);
+                target.convertToCurrency(currency, BinaryCodec.getDecimal(record));
+            }
+            case TRANSFER -> {
+                long toId = record.getLong();
+                if (toId == NOT_JOURNALED) {
+                    // The money left the journaled accounts, only the sending side has to be replayed
+                    target.TransferToAccount(new Account(BigDecimal.ZERO, target.getCurrency(), BigDecimal.ZERO));
+                } else {
+                    JournaledAccount to = accounts.get(toId);
+                    if (to == null) {
+                        throw new IOException("Journal refers to unknown account " + toId);
+                    }
+                    target.TransferToAccount(to.delegate());
+                    changed.add(toId);
+                }
+            }
+            default -> throw new IOException("Unknown journal record type " + type);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * Moves an explicit amount between two accounts as one atomic step.
+ * Accounts are mapped to a fixed set of lock stripes and a transfer always locks the lower stripe first,
+ * so two transfers in opposite directions can never wait on each other (no deadlocks).
+ * The transfer is atomic with regard to other transfers made through the same engine,
+ * accounts that are also changed directly should be thread-safe themselves (e.g. ConcurrentAccount).
+ * Whether the withdrawal and deposit went through is taken from tryWithdraw and tryDeposit,
+ * so balance changes made by other threads in the meantime can't be mistaken for the transfer's own.
+ */
+public class TransferEngine {
+
+    private static final int DEFAULT_STRIPES = 1024;
+
+    private final Object[] stripes;
+    private final int mask;
+
+    public TransferEngine() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /*
+     * The number of stripes is rounded up to a power of two
+     * */
+    public TransferEngine(int stripe_count) {
+        if (stripe_count <= 0) {
+            throw new IllegalArgumentException("stripe_count must be positive");
+        }
+        int size = Integer.highestOneBit(stripe_count);
+        if (size < stripe_count) {
+            size <<= 1;
+        }
+        this.stripes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Object();
+        }
+        this.mask = size - 1;
+    }
+
+    private int stripeOf(IAccount account) {
+        int h = System.identityHashCode(account);
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /*
+     * Transfers amount from one account to the other.
+     * Either both balances change or none of them do, the returned result tells which and why.
+     * */
+    public TransferResult transfer(IAccount from_account, IAccount to_account, BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return TransferResult.INVALID_AMOUNT;
+        } else if (from_account == to_account) {
+            return TransferResult.SAME_ACCOUNT;
+        }
+        int fromStripe = stripeOf(from_account);
+        int toStripe = stripeOf(to_account);
+        Object first = stripes[Math.min(fromStripe, toStripe)];
+        Object second = stripes[Math.max(fromStripe, toStripe)];
+        synchronized (first) {
+            synchronized (second) {
+                return transferLocked(from_account, to_account, amount);
+            }
+        }
+    }
+
+    private TransferResult transferLocked(IAccount from_account, IAccount to_account, BigDecimal amount) {
+        if (from_account.getCurrencyCode() != to_account.getCurrencyCode()) {
+            return TransferResult.CURRENCY_MISMATCH;
+        }
+        if (!from_account.tryWithdraw(amount)) {
+            return TransferResult.INSUFFICIENT_FUNDS;
+        }
+        if (!to_account.tryDeposit(amount)) {
+            from_account.deposit(amount); // Roll back the withdrawal
+            return TransferResult.DEPOSIT_REJECTED;
+        }
+        return TransferResult.SUCCESS;
+    }
+}
@@ -0,0 +1,36 @@
+package org.example;
+
+/**
+ * Outcome of a transfer, SUCCESS or the reason the transfer was rejected
+ */
+public enum TransferResult {
+    SUCCESS,
+    /**
+     * The amount was zero or negative
+     */
+    INVALID_AMOUNT,
+    /**
+     * The source account has no positive balance to transfer
+     */
+    NO_FUNDS,
+    /**
+     * Source and target are the same account
+     */
+    SAME_ACCOUNT,
+    /**
+     * The accounts hold different currencies
+     */
+    CURRENCY_MISMATCH,
+    /**
+     * The withdrawal would take the source account below -max_overdrawn
+     */
+    INSUFFICIENT_FUNDS,
+    /**
+     * The target account didn't accept the deposit, the money was returned to the source account
+     */
+    DEPOSIT_REJECTED;
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+}
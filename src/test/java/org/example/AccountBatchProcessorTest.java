@@ -0,0 +1,94 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class AccountBatchProcessorTest {
+
+    private static BigDecimal[] amounts(String... values) {
+        BigDecimal[] result = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = new BigDecimal(values[i]);
+        }
+        return result;
+    }
+
+    @Test
+    void testApply() {
+        Account myTestAccount = new Account(new BigDecimal(100), "SEK", new BigDecimal(50));
+        // deposit 20, withdraw 200 (rejected, would be -80), withdraw 170 (ok, -50), zero (rejected), deposit 0.5
+        BatchResult result = AccountBatchProcessor.apply(myTestAccount, amounts("20", "-200", "-170", "0", "0.5"));
+        assertEquals(5, result.size());
+        assertTrue(result.isAccepted(0));
+        assertFalse(result.isAccepted(1));
+        assertTrue(result.isAccepted(2));
+        assertFalse(result.isAccepted(3));
+        assertTrue(result.isAccepted(4));
+        assertEquals(3, result.acceptedCount());
+        assertEquals(2, result.rejectedCount());
+        assertEquals(new BigDecimal("-49.5"), result.getFinalBalance());
+        assertEquals(new BigDecimal("-49.5"), myTestAccount.getBalance());
+    }
+
+    @Test
+    void testApplyMinorUnits() {
+        LongAccount myTestAccount = new LongAccount(10000, "SEK", 0);
+        BatchResult result = AccountBatchProcessor.apply(myTestAccount, new long[]{-5000, -5001, 1, -5001});
+        assertTrue(result.isAccepted(0));
+        assertFalse(result.isAccepted(1));
+        assertTrue(result.isAccepted(2));
+        assertTrue(result.isAccepted(3));
+        assertEquals(0, myTestAccount.getBalanceMinor());
+        assertEquals(BigDecimal.ZERO, result.getFinalBalance());
+    }
+
+    @Test
+    void testUnrepresentablePostingIsRejectedOnItsOwn() {
+        // JPY has no decimals, so 0.5 can't be posted, the other postings still go through
+        IAccount[] candidates = {
+                new LongAccount(new BigDecimal(100), "JPY", BigDecimal.ZERO),
+                new InstrumentedAccount(new LongAccount(new BigDecimal(100), "JPY", BigDecimal.ZERO), new AccountMetrics()),
+        };
+        for (IAccount candidate : candidates) {
+            BatchResult result = AccountBatchProcessor.apply(candidate, amounts("20", "0.5", "-30", "-0.5"));
+            assertTrue(result.isAccepted(0));
+            assertFalse(result.isAccepted(1));
+            assertTrue(result.isAccepted(2));
+            assertFalse(result.isAccepted(3));
+            assertEquals(new BigDecimal(90), result.getFinalBalance());
+            assertEquals(new BigDecimal(90), candidate.getBalance());
+        }
+    }
+
+    @Test
+    void testBatchMatchesOneCallPerPosting() {
+        // The batch must give the same result as calling deposit/withdraw once per posting,
+        // for every implementation (ConcurrentAccount goes through the one-by-one fallback)
+        Random random = new Random(42);
+        BigDecimal[] postings = new BigDecimal[2000];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = BigDecimal.valueOf(random.nextInt(-5000, 4000), 2);
+        }
+        IAccount[] candidates = {
+                new Account(new BigDecimal(100), "SEK", new BigDecimal(300)),
+                new LongAccount(new BigDecimal(100), "SEK", new BigDecimal(300)),
+                new ConcurrentAccount(new BigDecimal(100), "SEK", new BigDecimal(300)),
+        };
+        for (IAccount candidate : candidates) {
+            Account reference = new Account(new BigDecimal(100), "SEK", new BigDecimal(300));
+            BatchResult result = AccountBatchProcessor.apply(candidate, postings);
+            for (int i = 0; i < postings.length; i++) {
+                BigDecimal before = reference.getBalance();
+                BigDecimal after = postings[i].signum() >= 0 ? reference.deposit(postings[i]) : reference.withdraw(postings[i].negate());
+                assertEquals(after.compareTo(before) != 0, result.isAccepted(i), candidate.getClass() + " posting " + i);
+            }
+            assertEquals(0, reference.getBalance().compareTo(result.getFinalBalance()), candidate.getClass().toString());
+            assertEquals(0, reference.getBalance().compareTo(candidate.getBalance()), candidate.getClass().toString());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class AccountCommandTest {
+
+    @Test
+    void testParse() {
+        AccountCommand command = AccountCommand.parse("  deposit 7   12.50 ");
+        assertEquals(AccountCommand.Type.DEPOSIT, command.type());
+        assertEquals(7, command.account());
+        assertEquals(new BigDecimal("12.50"), command.amount());
+
+        assertEquals(AccountCommand.transfer(1, 2), AccountCommand.parse("TRANSFER 1 2"));
+        assertEquals("EUR", AccountCommand.parse("CONVERT 3 EUR 0.09").currency());
+
+        for (String line : new String[]{"CREATE 1 100 SEK 50", "WITHDRAW 1 0.01", "WITHDRAW_ALL 1",
+                "TRANSFER 1 2", "CONVERT 1 EUR 0.09", "BALANCE 1"}) {
+            assertEquals(line, AccountCommand.parse(line).toString());
+        }
+    }
+
+    @Test
+    void testParseInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> AccountCommand.parse("STEAL 1 100"));
+        assertThrows(IllegalArgumentException.class, () -> AccountCommand.parse("DEPOSIT 1"));
+        assertThrows(IllegalArgumentException.class, () -> AccountCommand.parse("DEPOSIT one 100"));
+        assertThrows(IllegalArgumentException.class, () -> AccountCommand.parse("CONVERT 1 EURO 0.09"));
+    }
+}
@@ -0,0 +1,277 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Runs random operation sequences against Account and every other IAccount implementation and checks that they end up
+ * in the same state after every operation. Each sequence is generated from its own seed, so a reported divergence can be
+ * replayed with -Ddifferential.seed and -Ddifferential.sequences=1.
+ *
+ * The amounts and rates are chosen so every value fits in the minor units of its currency, the long-based accounts
+ * round anything else, which is a documented difference and not a bug. Self-transfers aren't generated either,
+ * Account loses the money on them and the implementations don't have to copy that.
+ *
+ * The defaults run about a million operations per implementation, more can be run with e.g.
+ * mvn test -Dtest=AccountDifferentialTest -Ddifferential.sequences=100000
+ */
+class AccountDifferentialTest {
+
+    private static final long SEED = Long.getLong("differential.seed", 20240501L);
+    private static final int SEQUENCES = Integer.getInteger("differential.sequences", 10_000);
+    private static final int OPERATIONS = Integer.getInteger("differential.operations", 100);
+    private static final int ACCOUNTS = 4;
+    private static final int MAX_REPORTED = 5;
+
+    private static final String[] CURRENCIES = {"SEK", "EUR", "USD", "JPY", "KWD"};
+    private static final BigDecimal[] RATES = {
+            new BigDecimal("2"), new BigDecimal("3"), new BigDecimal("10"), new BigDecimal("0.5"),
+            new BigDecimal("0.2"), new BigDecimal("0.1"), new BigDecimal("1.25"), new BigDecimal("0.8")
+    };
+    /**
+     * Conversions that would grow a value past this are replaced by rate 1 to the same currency,
+     * so long sequences don't overflow
+     */
+    private static final BigDecimal LIMIT = new BigDecimal(1_000_000_000_000L);
+
+    private enum Kind {
+        WITHDRAW,
+        WITHDRAW_ALL,
+        DEPOSIT,
+        CONVERT,
+        CONVERT_DOUBLE,
+        TRANSFER
+    }
+
+    private record Operation(Kind kind, int account, int target, BigDecimal amount, String currency) {
+
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case WITHDRAW, DEPOSIT -> kind + " #" + account + " " + amount.toPlainString();
+                case WITHDRAW_ALL -> kind + " #" + account;
+                case CONVERT, CONVERT_DOUBLE -> kind + " #" + account + " " + currency + " " + amount.toPlainString();
+                case TRANSFER -> kind + " #" + account + " -> #" + target;
+            };
+        }
+    }
+
+    /**
+     * A candidate implementation, make() is called once per sequence and returns a factory for its accounts
+     */
+    private record Candidate(String name, Supplier<TransactionJournal.AccountFactory> make) {
+    }
+
+    private static List<Candidate> candidates() {
+        return List.of(
+                new Candidate("LongAccount", () -> LongAccount::new),
+                new Candidate("ConcurrentAccount", () -> ConcurrentAccount::new),
+                new Candidate("AccountStore.AccountView", () -> {
+                    AccountStore store = new AccountStore(ACCOUNTS);
+                    return (balance, currency, max_overdrawn) -> store.view(store.add(balance, currency, max_overdrawn));
+                }));
+    }
+
+    @Test
+    void testImplementationsMatchAccount() {
+        List<Candidate> candidates = candidates();
+        Queue<String> divergences = new ConcurrentLinkedQueue<>();
+        AtomicLong diverged = new AtomicLong();
+        AtomicLong operations = new AtomicLong();
+
+        LongStream.range(0, SEQUENCES).parallel().forEach(i -> {
+            long seed = SEED + i;
+            for (Candidate candidate : candidates) {
+                String divergence = runSequence(seed, candidate);
+                if (divergence != null && diverged.incrementAndGet() <= MAX_REPORTED) {
+                    divergences.add(divergence);
+                }
+            }
+            operations.addAndGet((long) OPERATIONS * candidates.size());
+        });
+
+        assertEquals(0, diverged.get(), () -> diverged.get() + " of " + SEQUENCES * candidates.size()
+                + " sequences diverged (" + operations.get() + " operations), first ones:\n"
+                + String.join("\n\n", divergences));
+    }
+
+    @Test
+    void testDetectsDivergence() {
+        // A candidate that rounds every deposit down to whole units must be caught
+        Candidate rounding = new Candidate("Rounding", () -> (balance, currency, max_overdrawn) ->
+                new Account(balance, currency, max_overdrawn) {
+                    @Override
+                    public BigDecimal deposit(BigDecimal amount_to_deposit) {
+                        return super.deposit(amount_to_deposit.setScale(0, RoundingMode.DOWN));
+                    }
+                });
+        String divergence = null;
+        for (long seed = SEED; divergence == null && seed < SEED + 100; seed++) {
+            divergence = runSequence(seed, rounding);
+        }
+        assertNotNull(divergence);
+        assertTrue(divergence.contains("Rounding"));
+    }
+
+    /*
+     * Generates the sequence of the seed and runs it on both, returns a description of the first divergence or null
+     * */
+    private static String runSequence(long seed, Candidate candidate) {
+        SplittableRandom random = new SplittableRandom(seed);
+        TransactionJournal.AccountFactory factory = candidate.make().get();
+        IAccount[] reference = new IAccount[ACCOUNTS];
+        IAccount[] accounts = new IAccount[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String currency = random.nextInt(3) == 0 ? CURRENCIES[random.nextInt(CURRENCIES.length)] : "SEK";
+            int scale = CurrencyCode.of(currency).getScale();
+            BigDecimal maxOverdrawn = amount(random, scale, 1000);
+            BigDecimal balance = amount(random, scale, 2000).subtract(maxOverdrawn);
+            reference[i] = new Account(balance, currency, maxOverdrawn);
+            accounts[i] = factory.create(balance, currency, maxOverdrawn);
+        }
+        String mismatch = compareAll(reference, accounts);
+        if (mismatch != null) {
+            return report(seed, candidate, List.of(), mismatch);
+        }
+
+        List<Operation> trace = new ArrayList<>();
+        for (int n = 0; n < OPERATIONS; n++) {
+            Operation operation = next(random, reference);
+            trace.add(operation);
+            Object expected;
+            Object actual;
+            try {
+                expected = apply(operation, reference);
+                actual = apply(operation, accounts);
+            } catch (RuntimeException e) {
+                return report(seed, candidate, trace, "threw " + e);
+            }
+            if (!same(expected, actual)) {
+                mismatch = "returned " + actual + ", Account returned " + expected;
+            } else {
+                mismatch = compareAll(reference, accounts);
+            }
+            if (mismatch != null) {
+                return report(seed, candidate, trace, mismatch);
+            }
+        }
+        return null;
+    }
+
+    private static Operation next(SplittableRandom random, IAccount[] reference) {
+        int account = random.nextInt(ACCOUNTS);
+        int scale = reference[account].getCurrencyCode().getScale();
+        Kind kind = Kind.values()[random.nextInt(Kind.values().length)];
+        switch (kind) {
+            case WITHDRAW:
+            case DEPOSIT:
+                // Now and then zero or a negative amount, which both must reject
+                BigDecimal amount = random.nextInt(20) == 0
+                        ? amount(random, scale, 100).negate() : amount(random, scale, 1500);
+                return new Operation(kind, account, -1, amount, null);
+            case CONVERT:
+            case CONVERT_DOUBLE:
+                String currency = random.nextInt(2) == 0 ? reference[account].getCurrency() : CURRENCIES[random.nextInt(CURRENCIES.length)];
+                BigDecimal rate = random.nextInt(20) == 0 ? BigDecimal.ONE.negate() : RATES[random.nextInt(RATES.length)];
+                if (!exact(reference[account], rate, CurrencyCode.of(currency).getScale())) {
+                    // Still a conversion, but one that can't round
+                    currency = reference[account].getCurrency();
+                    rate = BigDecimal.ONE;
+                }
+                return new Operation(kind, account, -1, rate, currency);
+            case TRANSFER:
+                int target = (account + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                return new Operation(kind, account, target, null, null);
+            default:
+                return new Operation(kind, account, -1, null, null);
+        }
+    }
+
+    /*
+     * A random amount from 0 to max with up to scale decimals
+     * */
+    private static BigDecimal amount(SplittableRandom random, int scale, long max) {
+        int decimals = random.nextInt(scale + 1);
+        long unit = LongStream.range(0, decimals).reduce(1, (power, ignored) -> power * 10);
+        return BigDecimal.valueOf(random.nextLong(max * unit + 1), decimals);
+    }
+
+    /*
+     * Whether converting the account with the rate keeps its balance and max_overdrawn representable (and not too large)
+     * */
+    private static boolean exact(IAccount account, BigDecimal rate, int scale) {
+        if (rate.signum() <= 0) {
+            return true;
+        }
+        for (BigDecimal value : new BigDecimal[]{account.getBalance(), account.getMaxOverdrawn()}) {
+            BigDecimal converted = value.multiply(rate);
+            if (converted.stripTrailingZeros().scale() > scale || converted.abs().compareTo(LIMIT) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object apply(Operation operation, IAccount[] accounts) {
+        IAccount account = accounts[operation.account()];
+        return switch (operation.kind()) {
+            case WITHDRAW -> account.withdraw(operation.amount());
+            case WITHDRAW_ALL -> account.withdrawAll();
+            case DEPOSIT -> account.deposit(operation.amount());
+            case CONVERT -> account.convertToCurrency(operation.currency(), operation.amount());
+            case CONVERT_DOUBLE -> account.convertToCurrency(operation.currency(), operation.amount().doubleValue());
+            case TRANSFER -> {
+                account.TransferToAccount(accounts[operation.target()]);
+                yield null;
+            }
+        };
+    }
+
+    // Values are compared numerically, Account keeps trailing zeroes of the amounts it was given and the others don't
+    private static boolean same(Object expected, Object actual) {
+        if (expected instanceof BigDecimal && actual instanceof BigDecimal) {
+            return ((BigDecimal) expected).compareTo((BigDecimal) actual) == 0;
+        }
+        return expected == null ? actual == null : expected.equals(actual);
+    }
+
+    private static String compareAll(IAccount[] reference, IAccount[] accounts) {
+        for (int i = 0; i < reference.length; i++) {
+            if (!same(reference[i].getBalance(), accounts[i].getBalance())
+                    || !same(reference[i].getMaxOverdrawn(), accounts[i].getMaxOverdrawn())
+                    || reference[i].getCurrencyCode() != accounts[i].getCurrencyCode()) {
+                return "account #" + i + " is " + describe(accounts[i]) + ", Account has " + describe(reference[i]);
+            }
+        }
+        return null;
+    }
+
+    private static String describe(IAccount account) {
+        return account.getBalance().toPlainString() + " " + account.getCurrency()
+                + " (max_overdrawn " + account.getMaxOverdrawn().toPlainString() + ")";
+    }
+
+    private static String report(long seed, Candidate candidate, List<Operation> trace, String mismatch) {
+        StringBuilder report = new StringBuilder()
+                .append(candidate.name()).append(", seed ").append(seed)
+                .append(", after operation ").append(trace.size()).append(": ").append(mismatch);
+        int from = Math.max(0, trace.size() - 10);
+        for (int i = from; i < trace.size(); i++) {
+            report.append("\n  ").append(i + 1).append(". ").append(trace.get(i));
+        }
+        return report.toString();
+    }
+}
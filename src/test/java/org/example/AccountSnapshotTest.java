@@ -0,0 +1,90 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class AccountSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWriteAndLoad() throws IOException {
+        Map<Long, IAccount> accounts = new LinkedHashMap<>();
+        accounts.put(1L, new Account(new BigDecimal("-12.5"), "SEK", new BigDecimal(100)));
+        accounts.put(2L, new Account(new BigDecimal("98765432109876543210.01"), "EUR", BigDecimal.ZERO));
+        accounts.put(3L, new LongAccount(new BigDecimal(7), "JPY", new BigDecimal(1000)));
+        Path full = tempDir.resolve("full.snapshot");
+        AccountSnapshot.writeFull(full, accounts, 4711);
+
+        Map<Long, IAccount> loaded = new HashMap<>();
+        loaded.put(99L, new Account()); // A full snapshot replaces what was there before
+        assertEquals(4711, AccountSnapshot.load(full, Account::new, loaded));
+        assertEquals(3, loaded.size());
+        for (Map.Entry<Long, IAccount> entry : accounts.entrySet()) {
+            IAccount expected = entry.getValue();
+            IAccount actual = loaded.get(entry.getKey());
+            assertEquals(expected.getBalance(), actual.getBalance());
+            assertEquals(expected.getMaxOverdrawn(), actual.getMaxOverdrawn());
+            assertSame(expected.getCurrencyCode(), actual.getCurrencyCode());
+        }
+
+        // An incremental snapshot only holds the changed accounts and is applied on top
+        accounts.get(1L).deposit(new BigDecimal("112.5"));
+        Path incremental = tempDir.resolve("incremental.snapshot");
+        AccountSnapshot.writeIncremental(incremental, accounts, List.of(1L), 5000);
+        assertTrue(Files.size(incremental) < Files.size(full));
+        assertEquals(5000, AccountSnapshot.load(incremental, Account::new, loaded));
+        assertEquals(3, loaded.size());
+        assertEquals(0, new BigDecimal(100).compareTo(loaded.get(1L).getBalance()));
+    }
+
+    @Test
+    void testNotASnapshot() throws IOException {
+        Path file = tempDir.resolve("garbage");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> AccountSnapshot.load(file, Account::new, new HashMap<>()));
+    }
+
+    @Test
+    void testJournalStartsFromSnapshots() throws IOException {
+        Path journalFile = tempDir.resolve("accounts.journal");
+        Path full = tempDir.resolve("0.snapshot");
+        Path incremental = tempDir.resolve("1.snapshot");
+        try (TransactionJournal journal = TransactionJournal.open(journalFile)) {
+            for (long id = 0; id < 100; id++) {
+                journal.create(id, new BigDecimal(100), "SEK", new BigDecimal(50));
+            }
+            assertEquals(100, journal.writeSnapshot(full));
+            journal.account(5).withdraw(new BigDecimal(120));
+            journal.account(6).TransferToAccount(journal.account(7));
+            assertEquals(3, journal.writeIncrementalSnapshot(incremental));
+            // Only in the journal, after the last snapshot
+            journal.account(8).deposit(new BigDecimal("0.75"));
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(journalFile, List.of(full, incremental), Account::new,
+                TransactionJournal.DEFAULT_CHUNK_SIZE, 10)) {
+            assertEquals(100, journal.accounts().size());
+            assertEquals(new BigDecimal(-20), journal.account(5).getBalance());
+            assertEquals(0, BigDecimal.ZERO.compareTo(journal.account(6).getBalance()));
+            assertEquals(new BigDecimal(200), journal.account(7).getBalance());
+            assertEquals(new BigDecimal("100.75"), journal.account(8).getBalance());
+            assertEquals(new BigDecimal(100), journal.account(9).getBalance());
+            // The replayed deposit on account 8 is still "changed" for the next incremental snapshot
+            assertEquals(1, journal.writeIncrementalSnapshot(tempDir.resolve("2.snapshot")));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class AccountStoreTest {
+
+    @Test
+    void testViews() {
+        AccountStore store = new AccountStore(1); // Starts small so the columns have to grow
+        int a = store.add(new BigDecimal(1000), "SEK", new BigDecimal(200));
+        int b = store.add(new BigDecimal(-200), "SEK", new BigDecimal(1000));
+        int c = store.add(new BigDecimal(10), "USD", new BigDecimal(100));
+        assertEquals(3, store.size());
+
+        // Same cases as AccountTest, through the views
+        IAccount viewA = store.view(a);
+        assertEquals(new BigDecimal(-100), viewA.withdraw(new BigDecimal(1100)));
+        assertEquals(new BigDecimal(-100), viewA.withdraw(new BigDecimal(101)));
+        assertEquals(new BigDecimal(-80), viewA.deposit(new BigDecimal(20)));
+        assertEquals(new BigDecimal(-80), viewA.withdrawAll());
+        assertEquals(-8000, store.getBalanceMinor(a));
+
+        IAccount viewB = store.view(b);
+        assertEquals(new BigDecimal(-200), viewB.withdrawAll());
+        viewB.deposit(new BigDecimal(210));
+        viewB.TransferToAccount(store.view(c)); // Different currency, nothing happens
+        assertEquals(new BigDecimal(10), viewB.getBalance());
+        viewB.TransferToAccount(viewA);
+        assertEquals(BigDecimal.ZERO, viewB.getBalance());
+        assertEquals(new BigDecimal(-70), viewA.getBalance());
+
+        IAccount viewC = store.view(c);
+        assertTrue(viewC.convertToCurrency("SEK", 10.0));
+        assertEquals(new BigDecimal(100), viewC.getBalance());
+        assertEquals(new BigDecimal(1000), store.view(c).getMaxOverdrawn());
+        assertSame(CurrencyCode.SEK, store.getCurrency(c));
+        assertFalse(viewC.convertToCurrency("USD", -1.0));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> store.view(3));
+    }
+
+    @Test
+    void testWithdrawOverflow() {
+        // Same boundaries as LongAccountTest.testWithdraw, nothing wraps around
+        AccountStore store = new AccountStore();
+        int a = store.add(-(1L << 62), CurrencyCode.SEK, 0);
+        int b = store.add(Long.MIN_VALUE + 1, CurrencyCode.SEK, Long.MAX_VALUE);
+        int c = store.add(Long.MAX_VALUE, CurrencyCode.SEK, Long.MAX_VALUE);
+        assertEquals(-(1L << 62), store.withdrawMinor(a, Long.MAX_VALUE));
+        assertEquals(Long.MIN_VALUE + 1, store.withdrawMinor(b, 2));
+        assertEquals(0, store.withdrawMinor(c, Long.MAX_VALUE));
+    }
+
+    @Test
+    void testBulkScans() {
+        AccountStore store = new AccountStore();
+        store.add(new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        store.add(new BigDecimal("-10.50"), "SEK", new BigDecimal(100));
+        store.add(new BigDecimal(-20), "SEK", new BigDecimal(100));
+        store.add(new BigDecimal(-5), "EUR", new BigDecimal(100));
+        store.add(new BigDecimal(7), "EUR", new BigDecimal(100));
+
+        assertEquals(6950, store.totalBalanceMinor(CurrencyCode.SEK));
+        assertEquals(3050, store.totalExposureMinor(CurrencyCode.SEK));
+        assertEquals(new BigDecimal("30.5"), store.totalExposure(CurrencyCode.SEK));
+        assertEquals(new BigDecimal(5), store.totalExposure(CurrencyCode.EUR));
+        assertEquals(BigDecimal.ZERO, store.totalExposure(CurrencyCode.USD));
+        assertEquals(3, store.countNegative());
+        assertArrayEquals(new int[]{1, 2, 3}, store.negativeBalanceIndexes());
+    }
+}
@@ -0,0 +1,113 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BulkConversionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Account> book(int size) {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            // Every third account is in EUR and must be left alone
+            String currency = i % 3 == 0 ? "EUR" : "SEK";
+            accounts.add(new Account(new BigDecimal(i).movePointLeft(2), currency, new BigDecimal(i % 7)));
+        }
+        return accounts;
+    }
+
+    private static void assertConverted(List<Account> expected, List<Account> actual) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getBalance(), actual.get(i).getBalance());
+            assertEquals(expected.get(i).getMaxOverdrawn(), actual.get(i).getMaxOverdrawn());
+            assertSame(expected.get(i).getCurrencyCode(), actual.get(i).getCurrencyCode());
+        }
+    }
+
+    @Test
+    void testSameResultAsConvertToCurrency() {
+        BigDecimal rate = new BigDecimal("0.0873");
+        List<Account> expected = book(10_000);
+        for (Account account : expected) {
+            if (account.getCurrencyCode() == CurrencyCode.SEK) {
+                account.convertToCurrency("USD", rate);
+            }
+        }
+
+        List<Account> accounts = book(10_000);
+        BulkConversion conversion = BulkConversion.forCurrency(accounts, "SEK", "USD", rate);
+        assertTrue(conversion.run(new ForkJoinPool(4)));
+        assertEquals(6666, conversion.getConverted());
+        assertEquals(1.0, conversion.getProgress());
+        assertConverted(expected, accounts);
+    }
+
+    @Test
+    void testCancelAndRestart() {
+        List<Account> expected = book(5000);
+        expected.forEach(a -> {
+            if (a.getCurrencyCode() == CurrencyCode.SEK) {
+                a.convertToCurrency("EUR", 2.0);
+            }
+        });
+
+        List<Account> accounts = book(5000);
+        // With chunks of 100 the cancel comes long before the 50 chunks are done
+        BulkConversion small = new BulkConversion(accounts, a -> a.getCurrencyCode() == CurrencyCode.SEK, "EUR", new BigDecimal("2.0"), 100);
+        small.setProgressListener((done, total, converted) -> {
+            if (done == 3) {
+                small.cancel();
+            }
+        });
+        assertFalse(small.run(new ForkJoinPool(1)));
+        assertTrue(small.getCompletedChunks() >= 3 && small.getCompletedChunks() < 50);
+        small.setProgressListener(null);
+        assertTrue(small.run());
+        assertEquals(50, small.getCompletedChunks());
+        // Every account converted exactly once
+        assertConverted(expected, accounts);
+    }
+
+    @Test
+    void testResumeFromCheckpoint() throws IOException {
+        Path checkpoint = tempDir.resolve("conversion.checkpoint");
+        List<Account> accounts = book(1000);
+        BulkConversion first = new BulkConversion(accounts, a -> a.getCurrencyCode() == CurrencyCode.SEK, "USD", BigDecimal.TEN, 10);
+        first.checkpointTo(checkpoint, 5);
+        first.setProgressListener((done, total, converted) -> {
+            if (done == 20) {
+                first.cancel();
+            }
+        });
+        assertFalse(first.run(new ForkJoinPool(1)));
+        long convertedBefore = first.getConverted();
+
+        // A new conversion over the same accounts picks up where the first one stopped
+        BulkConversion second = new BulkConversion(accounts, a -> a.getCurrencyCode() == CurrencyCode.SEK, "USD", BigDecimal.TEN, 10);
+        second.loadCheckpoint(checkpoint);
+        assertEquals(first.getCompletedChunks(), second.getCompletedChunks());
+        assertTrue(second.run());
+        assertEquals(666, convertedBefore + second.getConverted());
+
+        BulkConversion other = new BulkConversion(accounts, a -> true, "USD", BigDecimal.ONE, 10);
+        assertThrows(IOException.class, () -> other.loadCheckpoint(checkpoint));
+    }
+
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new BulkConversion(book(1), a -> true, "USD", BigDecimal.ZERO));
+        assertTrue(new BulkConversion(new ArrayList<Account>(), a -> true, "USD", BigDecimal.ONE).run());
+    }
+}
@@ -0,0 +1,123 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CommandProcessorTest {
+
+    @Test
+    void testCommands() {
+        try (CommandProcessor processor = new CommandProcessor(4)) {
+            assertEquals("OK 100", processor.execute(AccountCommand.parse("CREATE 1 100 SEK 50")));
+            assertEquals("ERROR Account 1 already exists", processor.execute(AccountCommand.parse("CREATE 1 100 SEK 50")));
+            assertEquals("OK 0", processor.execute(AccountCommand.parse("CREATE 2 0 SEK 0")));
+            assertEquals("OK 0", processor.execute(AccountCommand.parse("CREATE 3 0 EUR 0")));
+
+            assertEquals("OK -30", processor.execute(AccountCommand.parse("WITHDRAW 1 130")));
+            assertEquals("REJECTED INSUFFICIENT_FUNDS", processor.execute(AccountCommand.parse("WITHDRAW 1 21")));
+            assertEquals("REJECTED INVALID_AMOUNT", processor.execute(AccountCommand.parse("DEPOSIT 1 -5")));
+            assertEquals("OK 70", processor.execute(AccountCommand.parse("DEPOSIT 1 100")));
+            assertEquals("REJECTED NO_FUNDS", processor.execute(AccountCommand.parse("WITHDRAW_ALL 2")));
+            assertEquals("ERROR No account with id 9", processor.execute(AccountCommand.parse("BALANCE 9")));
+
+            // Whether these are on the same shard or not, the result is the same
+            assertEquals("REJECTED CURRENCY_MISMATCH", processor.execute(AccountCommand.parse("TRANSFER 1 3")));
+            assertEquals("OK 70", processor.execute(AccountCommand.parse("BALANCE 1")));
+            assertEquals("REJECTED SAME_ACCOUNT", processor.execute(AccountCommand.parse("TRANSFER 1 1")));
+            assertEquals("OK 0", processor.execute(AccountCommand.parse("TRANSFER 1 2")));
+            assertEquals("OK 70", processor.execute(AccountCommand.parse("BALANCE 2")));
+            assertEquals("REJECTED NO_FUNDS", processor.execute(AccountCommand.parse("TRANSFER 1 2")));
+            assertEquals("ERROR No account with id 9", processor.execute(AccountCommand.parse("TRANSFER 2 9")));
+            assertEquals("OK 70", processor.execute(AccountCommand.parse("BALANCE 2")));
+
+            // Still beyond its overdraft limit after a deposit, so it rejects deposits and transfers to it
+            assertEquals("OK -200", processor.execute(AccountCommand.parse("CREATE 4 -200 SEK 100")));
+            assertEquals("REJECTED DEPOSIT_REJECTED", processor.execute(AccountCommand.parse("DEPOSIT 4 50")));
+            assertEquals("REJECTED DEPOSIT_REJECTED", processor.execute(AccountCommand.parse("TRANSFER 2 4")));
+            assertEquals("OK 70", processor.execute(AccountCommand.parse("BALANCE 2")));
+            assertEquals("OK -200", processor.execute(AccountCommand.parse("BALANCE 4")));
+
+            assertEquals("OK 7", processor.execute(AccountCommand.parse("CONVERT 2 EUR 0.1")));
+            assertEquals("REJECTED INVALID_RATE", processor.execute(AccountCommand.parse("CONVERT 2 EUR 0")));
+        }
+    }
+
+    @Test
+    void testTransfersBetweenShards() {
+        try (CommandProcessor processor = new CommandProcessor(8)) {
+            int accounts = 64;
+            for (int i = 0; i < accounts; i++) {
+                processor.execute(AccountCommand.create(i, new BigDecimal(100), i % 8 == 0 ? "EUR" : "SEK", BigDecimal.ZERO));
+            }
+            var replies = new java.util.ArrayList<java.util.concurrent.CompletableFuture<String>>();
+            for (int round = 0; round < 50; round++) {
+                for (int i = 0; i < accounts; i++) {
+                    replies.add(processor.submit(AccountCommand.transfer(i, (i * 7 + round) % accounts)));
+                }
+            }
+            replies.forEach(java.util.concurrent.CompletableFuture::join);
+
+            // Money is only moved, never created or lost, and never between currencies
+            BigDecimal sek = BigDecimal.ZERO;
+            BigDecimal eur = BigDecimal.ZERO;
+            for (int i = 0; i < accounts; i++) {
+                BigDecimal balance = new BigDecimal(processor.execute(AccountCommand.balance(i)).substring(3));
+                assertTrue(balance.signum() >= 0);
+                if (i % 8 == 0) {
+                    eur = eur.add(balance);
+                } else {
+                    sek = sek.add(balance);
+                }
+            }
+            assertEquals(0, new BigDecimal(5600).compareTo(sek));
+            assertEquals(0, new BigDecimal(800).compareTo(eur));
+        }
+    }
+
+    @Test
+    void testServer() throws Exception {
+        try (CommandProcessor processor = new CommandProcessor(2);
+             CommandServer server = new CommandServer(processor)) {
+            StringWriter out = new StringWriter();
+            long count = server.process(new BufferedReader(new StringReader("# accounts\nCREATE 1 10 SEK 0\n\nDEPOSIT 1 5\nFOO\n")), out);
+            assertEquals(3, count);
+            assertEquals("OK 10\nOK 15\nERROR Unknown command: FOO\n", out.toString());
+
+            int port = server.listen(0);
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                 BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                writer.write("WITHDRAW 1 20\nWITHDRAW 1 15\n");
+                writer.flush();
+                assertEquals("REJECTED INSUFFICIENT_FUNDS", reader.readLine());
+                assertEquals("OK 0", reader.readLine());
+            }
+        }
+    }
+
+    @Test
+    void testLoadGenerator() throws Exception {
+        // Few enough clients for the default open file limit, each holds a connection to the server
+        try (CommandProcessor processor = new CommandProcessor(4);
+             CommandServer server = new CommandServer(processor)) {
+            LoadGenerator generator = new LoadGenerator(server.listen(0), 100);
+            LoadGenerator.Result result = generator.run(200, 50, 42);
+            assertEquals(10_000, result.commands());
+            assertEquals(10_000, result.latency().getCount());
+            assertTrue(result.latency().getValueAtPercentile(99) > 0);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ConcurrentAccountTest {
+
+    private static final int THREADS = 8;
+
+    /*
+     * Starts THREADS copies of the task at the same time and waits for all of them to finish
+     * */
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testSingleThreadedBehavesLikeAccount() {
+        ConcurrentAccount myTestAccount = new ConcurrentAccount(new BigDecimal(1000), "SEK", new BigDecimal(200));
+        assertEquals(new BigDecimal(-100), myTestAccount.withdraw(new BigDecimal(1100)));
+        assertEquals(new BigDecimal(-100), myTestAccount.withdraw(new BigDecimal(101)));
+        assertEquals(new BigDecimal(-80), myTestAccount.deposit(new BigDecimal(20)));
+        assertEquals(new BigDecimal(-80), myTestAccount.deposit(new BigDecimal(-20)));
+        assertEquals(new BigDecimal(-80), myTestAccount.withdrawAll());
+
+        ConcurrentAccount myTestAccount2 = new ConcurrentAccount(new BigDecimal(-100), "EUR", new BigDecimal(200));
+        assertTrue(myTestAccount2.convertToCurrency("SEK", 10.0));
+        assertEquals(new BigDecimal(-1000), myTestAccount2.getBalance());
+        assertEquals(new BigDecimal(2000), myTestAccount2.getMaxOverdrawn());
+        assertEquals("SEK", myTestAccount2.getCurrency());
+        assertFalse(myTestAccount2.convertToCurrency("USD", -1.0));
+
+        ConcurrentAccount myTestAccountA = new ConcurrentAccount(new BigDecimal(10), "SEK", BigDecimal.ZERO);
+        ConcurrentAccount myTestAccountB = new ConcurrentAccount(new BigDecimal(-200), "SEK", new BigDecimal(1000));
+        myTestAccountA.TransferToAccount(myTestAccountB);
+        assertEquals(BigDecimal.ZERO, myTestAccountA.getBalance());
+        assertEquals(new BigDecimal(-190), myTestAccountB.getBalance());
+    }
+
+    @Test
+    void testRejectedTransferIsPutBack() {
+        // The targets are beyond their overdraft limit even after the deposit, so they reject it
+        for (IAccount target : new IAccount[]{
+                new Account(new BigDecimal(-200), "SEK", new BigDecimal(100)),
+                new LongAccount(new BigDecimal(-200), "SEK", new BigDecimal(100))}) {
+            ConcurrentAccount myTestAccount = new ConcurrentAccount(new BigDecimal(50), "SEK", BigDecimal.ZERO);
+            myTestAccount.TransferToAccount(target);
+            assertEquals(new BigDecimal(50), myTestAccount.getBalance());
+            assertEquals(new BigDecimal(-200), target.getBalance());
+        }
+
+        // A deposit that throws puts the money back as well
+        ConcurrentAccount myTestAccount = new ConcurrentAccount(new BigDecimal("0.5"), "JPY", BigDecimal.ZERO);
+        LongAccount target = new LongAccount(BigDecimal.ZERO, "JPY", BigDecimal.ZERO);
+        assertThrows(ArithmeticException.class, () -> myTestAccount.TransferToAccount(target));
+        assertEquals(new BigDecimal("0.5"), myTestAccount.getBalance());
+        assertEquals(BigDecimal.ZERO, target.getBalance());
+    }
+
+    @RepeatedTest(20)
+    void testConcurrentWithdrawNeverPassesOverdraftLimit() throws Exception {
+        // 8 threads each try to withdraw 1 SEK 1000 times from an account that only allows 1500 withdrawals.
+        // No thread may ever see the balance below -max_overdrawn and it must end exactly there.
+        ConcurrentAccount myTestAccount = new ConcurrentAccount(new BigDecimal(1000), "SEK", new BigDecimal(500));
+        runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                BigDecimal after = myTestAccount.withdraw(BigDecimal.ONE);
+                assertTrue(after.compareTo(new BigDecimal(-500)) >= 0);
+            }
+        });
+        assertEquals(new BigDecimal(-500), myTestAccount.getBalance());
+    }
+
+    @RepeatedTest(20)
+    void testConcurrentDepositsAreNotLost() throws Exception {
+        ConcurrentAccount myTestAccount = new ConcurrentAccount(BigDecimal.ZERO, "SEK", BigDecimal.ZERO);
+        runConcurrently(() -> {
+            for (int i = 0; i < 1000; i++) {
+                myTestAccount.deposit(BigDecimal.ONE);
+            }
+        });
+        assertEquals(new BigDecimal(THREADS * 1000), myTestAccount.getBalance());
+    }
+
+    @RepeatedTest(10)
+    void testConcurrentTransfersKeepTotal() throws Exception {
+        // Random deposits and transfers between a few accounts, transfers only move money around
+        // so the total must equal the starting balances plus everything deposited.
+        ConcurrentAccount[] accounts = new ConcurrentAccount[4];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new ConcurrentAccount(new BigDecimal(100), "SEK", new BigDecimal(50));
+        }
+        AtomicInteger deposited = new AtomicInteger();
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 5000; i++) {
+                ConcurrentAccount from = accounts[random.nextInt(accounts.length)];
+                ConcurrentAccount to = accounts[random.nextInt(accounts.length)];
+                switch (random.nextInt(2)) {
+                    case 0 -> {
+                        from.deposit(BigDecimal.TEN);
+                        deposited.addAndGet(10);
+                    }
+                    default -> from.TransferToAccount(to);
+                }
+                assertTrue(from.getBalance().compareTo(new BigDecimal(-50)) >= 0);
+            }
+        });
+        BigDecimal total = BigDecimal.ZERO;
+        for (ConcurrentAccount account : accounts) {
+            assertTrue(account.getBalance().compareTo(new BigDecimal(-50)) >= 0);
+            total = total.add(account.getBalance());
+        }
+        assertEquals(0, new BigDecimal(400 + deposited.get()).compareTo(total));
+    }
+}
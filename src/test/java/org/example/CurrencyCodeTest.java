@@ -0,0 +1,48 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class CurrencyCodeTest {
+
+    @Test
+    void testInterned() {
+        assertSame(CurrencyCode.SEK, CurrencyCode.of("SEK"));
+        assertSame(CurrencyCode.of("GBP"), CurrencyCode.of(new String("GBP")));
+        assertSame(CurrencyCode.of("GBP"), CurrencyCode.byId(CurrencyCode.of("GBP").getId()));
+        assertNotEquals(CurrencyCode.SEK.getId(), CurrencyCode.EUR.getId());
+        assertEquals("USD", CurrencyCode.USD.getCode());
+    }
+
+    @Test
+    void testScale() {
+        assertEquals(2, CurrencyCode.SEK.getScale());
+        assertEquals(0, CurrencyCode.of("JPY").getScale());
+        assertEquals(3, CurrencyCode.of("KWD").getScale());
+    }
+
+    @Test
+    void testInvalidCodes() {
+        assertThrows(IllegalArgumentException.class, () -> CurrencyCode.of("sek"));
+        assertThrows(IllegalArgumentException.class, () -> CurrencyCode.of("SEKK"));
+        assertThrows(IllegalArgumentException.class, () -> CurrencyCode.of(null));
+        assertThrows(IllegalArgumentException.class, () -> CurrencyCode.byId(-1));
+
+        Account myTestAccount = new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO);
+        assertThrows(IllegalArgumentException.class, () -> myTestAccount.setCurrency("kronor"));
+        assertEquals("SEK", myTestAccount.getCurrency());
+    }
+
+    @Test
+    void testAccountsShareInstance() {
+        Account myTestAccountA = new Account(BigDecimal.ZERO, "EUR", BigDecimal.ZERO);
+        LongAccount myTestAccountB = new LongAccount(BigDecimal.ZERO, "EUR", BigDecimal.ZERO);
+        ConcurrentAccount myTestAccountC = new ConcurrentAccount(BigDecimal.ZERO, "EUR", BigDecimal.ZERO);
+        assertSame(myTestAccountA.getCurrencyCode(), myTestAccountB.getCurrencyCode());
+        assertSame(myTestAccountA.getCurrencyCode(), myTestAccountC.getCurrencyCode());
+    }
+}
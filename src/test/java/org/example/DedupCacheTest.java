@@ -0,0 +1,133 @@
+package org.example;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class DedupCacheTest {
+
+    @Test
+    void testReturnsFirstResult() {
+        DedupCache cache = new DedupCache(1000, 60_000);
+        assertEquals(1024, cache.capacity());
+        AtomicInteger runs = new AtomicInteger();
+        assertEquals(1, (int) cache.computeIfAbsent(42, runs::incrementAndGet));
+        assertEquals(1, (int) cache.computeIfAbsent(42, runs::incrementAndGet));
+        assertEquals(1, cache.get(42));
+        assertNull(cache.get(43));
+
+        cache.remove(42);
+        assertEquals(2, (int) cache.computeIfAbsent(42, runs::incrementAndGet));
+    }
+
+    @Test
+    void testFailureIsNotCached() {
+        DedupCache cache = new DedupCache(16, 60_000);
+        assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent(1, () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals("retried", cache.computeIfAbsent(1, () -> "retried"));
+    }
+
+    @Test
+    void testEviction() throws InterruptedException {
+        // Expired by time
+        DedupCache cache = new DedupCache(16, 1);
+        cache.computeIfAbsent(1, () -> "first");
+        Thread.sleep(5);
+        assertNull(cache.get(1));
+        assertEquals("second", cache.computeIfAbsent(1, () -> "second"));
+
+        // One bucket of four slots, a fifth key evicts the oldest one
+        DedupCache small = new DedupCache(4, 60_000);
+        for (long key = 1; key <= 5; key++) {
+            long value = key;
+            small.computeIfAbsent(key, () -> value);
+        }
+        assertNull(small.get(1));
+        for (long key = 2; key <= 5; key++) {
+            assertEquals(key, small.get(key));
+        }
+        small.remove(2);
+        assertNull(small.get(2));
+        assertEquals(6L, small.computeIfAbsent(6, () -> 6L));
+        assertEquals(3L, small.get(3));
+    }
+
+    @Test
+    void testRunningEntriesAreNotEvicted() {
+        // The only slot is running, another key is rejected instead of evicting it
+        DedupCache cache = new DedupCache(1, 60_000);
+        AtomicInteger runs = new AtomicInteger();
+        assertEquals("one", cache.computeIfAbsent(1, () -> {
+            assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent(2, runs::incrementAndGet));
+            return "one";
+        }));
+        assertEquals(0, runs.get());
+        // Once it has finished it can be evicted
+        assertEquals(1, (int) cache.computeIfAbsent(2, runs::incrementAndGet));
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    void testPendingNeverExpires() throws InterruptedException {
+        DedupCache cache = new DedupCache(16, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        Thread slow = new Thread(() -> cache.computeIfAbsent(7, () -> {
+            runs.incrementAndGet();
+            running.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        }));
+        slow.start();
+        running.await();
+        Thread.sleep(5); // Well past the time to live
+        Thread retry = new Thread(() -> cache.computeIfAbsent(7, runs::incrementAndGet));
+        retry.start();
+        Thread.sleep(20);
+        // The retry waits for the running operation instead of starting it again
+        assertEquals(1, runs.get());
+        assertTrue(retry.isAlive());
+        finish.countDown();
+        slow.join();
+        retry.join();
+    }
+
+    @RepeatedTest(5)
+    void testConcurrentRetriesRunOnce() throws InterruptedException {
+        // All keys fit in the table, so none is evicted and each runs exactly once
+        DedupCache cache = new DedupCache(2048, 60_000);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long key = 0; key < 500; key++) {
+                    cache.computeIfAbsent(key, runs::incrementAndGet);
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(500, runs.get());
+    }
+}
@@ -0,0 +1,177 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class HoldAccountTest {
+
+    @Test
+    void testReserveAndCapture() {
+        TimerWheel wheel = new TimerWheel(10, 64, 0);
+        HoldAccount myTestAccount = new HoldAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), wheel);
+
+        HoldAccount.Hold hold = myTestAccount.reserve(new BigDecimal(30), 1000);
+        assertNotNull(hold);
+        assertEquals(new BigDecimal(100), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(70), myTestAccount.getAvailableBalance());
+        assertEquals(1, myTestAccount.getHoldCount());
+
+        assertTrue(myTestAccount.capture(hold));
+        assertEquals(HoldAccount.Hold.State.CAPTURED, hold.getState());
+        assertEquals(new BigDecimal(70), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(70), myTestAccount.getAvailableBalance());
+        assertEquals(0, myTestAccount.getHoldCount());
+        assertEquals(0, wheel.size());
+
+        // A hold can only end once
+        assertFalse(myTestAccount.capture(hold));
+        assertFalse(myTestAccount.release(hold));
+    }
+
+    @Test
+    void testPartialCaptureAndRelease() {
+        TimerWheel wheel = new TimerWheel(10, 64, 0);
+        HoldAccount myTestAccount = new HoldAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), wheel);
+
+        HoldAccount.Hold hold = myTestAccount.reserve(new BigDecimal(50), 1000);
+        assertFalse(myTestAccount.capture(hold, new BigDecimal(60)));
+        assertFalse(myTestAccount.capture(hold, BigDecimal.ZERO));
+        assertTrue(myTestAccount.capture(hold, new BigDecimal(20)));
+        assertEquals(new BigDecimal(80), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(80), myTestAccount.getAvailableBalance());
+
+        HoldAccount.Hold released = myTestAccount.reserve(new BigDecimal(80), 1000);
+        assertTrue(myTestAccount.release(released));
+        assertEquals(HoldAccount.Hold.State.RELEASED, released.getState());
+        assertEquals(new BigDecimal(80), myTestAccount.getAvailableBalance());
+
+        // Holds of one account can't be used on another
+        HoldAccount other = new HoldAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), wheel);
+        HoldAccount.Hold foreign = other.reserve(BigDecimal.TEN, 1000);
+        assertFalse(myTestAccount.capture(foreign));
+        assertFalse(myTestAccount.release(foreign));
+        assertEquals(HoldAccount.Hold.State.ACTIVE, foreign.getState());
+    }
+
+    @Test
+    void testRejectedCaptureKeepsHold() {
+        TimerWheel wheel = new TimerWheel(10, 64, 0);
+        Account wrapped = new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        HoldAccount myTestAccount = new HoldAccount(wrapped, wheel);
+        HoldAccount.Hold hold = myTestAccount.reserve(new BigDecimal(80), 1000);
+
+        // Changed behind the hold account's back, the capture can't be booked
+        wrapped.withdraw(new BigDecimal(50));
+        assertFalse(myTestAccount.capture(hold));
+        assertEquals(HoldAccount.Hold.State.ACTIVE, hold.getState());
+        assertEquals(new BigDecimal(80), myTestAccount.getHeldAmount());
+
+        myTestAccount.deposit(new BigDecimal(50));
+        assertTrue(myTestAccount.capture(hold));
+        assertEquals(new BigDecimal(20), myTestAccount.getBalance());
+    }
+
+    @Test
+    void testLimitAppliesAcrossHolds() {
+        TimerWheel wheel = new TimerWheel(10, 64, 0);
+        HoldAccount myTestAccount = new HoldAccount(new Account(new BigDecimal(100), "SEK", new BigDecimal(50)), wheel);
+
+        assertNotNull(myTestAccount.reserve(new BigDecimal(80), 1000));
+        assertNotNull(myTestAccount.reserve(new BigDecimal(60), 1000));
+        assertNull(myTestAccount.reserve(new BigDecimal(20), 1000));
+        assertNull(myTestAccount.reserve(BigDecimal.ZERO, 1000));
+        assertEquals(new BigDecimal(-40), myTestAccount.getAvailableBalance());
+        assertEquals(new BigDecimal(140), myTestAccount.getHeldAmount());
+
+        // Withdrawals count against the available balance, not the booked one
+        assertEquals(new BigDecimal(100), myTestAccount.withdraw(new BigDecimal(20)));
+        assertEquals(new BigDecimal(90), myTestAccount.withdraw(BigDecimal.TEN));
+        assertEquals(new BigDecimal(-50), myTestAccount.getAvailableBalance());
+
+        // Nothing is available, so neither withdrawAll nor a transfer moves money
+        Account target = new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO);
+        assertEquals(new BigDecimal(90), myTestAccount.withdrawAll());
+        myTestAccount.TransferToAccount(target);
+        assertEquals(BigDecimal.ZERO, target.getBalance());
+        assertFalse(myTestAccount.convertToCurrency("EUR", BigDecimal.TEN));
+    }
+
+    @Test
+    void testWithdrawAllAndTransferLeaveHeldMoney() {
+        TimerWheel wheel = new TimerWheel(10, 64, 0);
+        HoldAccount myTestAccount = new HoldAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), wheel);
+        HoldAccount target = new HoldAccount(new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO), wheel);
+
+        HoldAccount.Hold hold = myTestAccount.reserve(new BigDecimal(30), 1000);
+        myTestAccount.TransferToAccount(target);
+        assertEquals(new BigDecimal(30), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(70), target.getBalance());
+
+        myTestAccount.deposit(new BigDecimal(5));
+        assertEquals(new BigDecimal(30), myTestAccount.withdrawAll());
+        assertTrue(myTestAccount.capture(hold));
+        assertEquals(BigDecimal.ZERO, myTestAccount.getBalance());
+
+        // Without holds it behaves like the account it wraps
+        target.TransferToAccount(myTestAccount);
+        assertEquals(new BigDecimal(70), myTestAccount.getBalance());
+        assertTrue(myTestAccount.convertToCurrency("EUR", new BigDecimal(2)));
+        assertEquals(new BigDecimal(140), myTestAccount.getBalance());
+    }
+
+    @Test
+    void testRejectedTransferIsPutBack() {
+        TimerWheel wheel = new TimerWheel(10, 64, 0);
+        HoldAccount myTestAccount = new HoldAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), wheel);
+        myTestAccount.reserve(new BigDecimal(30), 1000);
+        // Still beyond its overdraft limit after the deposit, so it rejects it
+        Account target = new Account(new BigDecimal(-200), "SEK", new BigDecimal(100));
+        myTestAccount.TransferToAccount(target);
+        assertEquals(new BigDecimal(100), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(-200), target.getBalance());
+        assertEquals(new BigDecimal(30), myTestAccount.getHeldAmount());
+    }
+
+    @Test
+    void testHoldsExpire() {
+        TimerWheel wheel = new TimerWheel(10, 64, 0);
+        HoldAccount myTestAccount = new HoldAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), wheel);
+
+        HoldAccount.Hold shortHold = myTestAccount.reserve(new BigDecimal(40), 100);
+        HoldAccount.Hold longHold = myTestAccount.reserve(new BigDecimal(60), 5000);
+        assertNull(myTestAccount.reserve(BigDecimal.ONE, 100));
+
+        wheel.advanceTo(100);
+        assertEquals(HoldAccount.Hold.State.EXPIRED, shortHold.getState());
+        assertEquals(HoldAccount.Hold.State.ACTIVE, longHold.getState());
+        assertEquals(new BigDecimal(40), myTestAccount.getAvailableBalance());
+        assertFalse(myTestAccount.capture(shortHold));
+
+        assertTrue(myTestAccount.release(longHold));
+        wheel.advanceTo(10_000);
+        assertEquals(HoldAccount.Hold.State.RELEASED, longHold.getState());
+        assertEquals(new BigDecimal(100), myTestAccount.getAvailableBalance());
+        assertEquals(new BigDecimal(100), myTestAccount.getBalance());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testManyHoldsOnStartedWheel() throws InterruptedException {
+        try (TimerWheel wheel = TimerWheel.start(5, 256)) {
+            HoldAccount myTestAccount = new HoldAccount(new Account(new BigDecimal(100_000), "SEK", BigDecimal.ZERO), wheel);
+            for (int i = 0; i < 100_000; i++) {
+                assertNotNull(myTestAccount.reserve(BigDecimal.ONE, 20));
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (myTestAccount.getHoldCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(0, myTestAccount.getHoldCount());
+            assertEquals(new BigDecimal(100_000), myTestAccount.getAvailableBalance());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class IdempotentAccountTest {
+
+    @Test
+    void testRetriesDontDoublePost() {
+        DedupCache cache = new DedupCache(1024, 60_000);
+        IdempotentAccount myTestAccount = new IdempotentAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), cache);
+
+        assertEquals(new BigDecimal(60), myTestAccount.withdraw(1, new BigDecimal(40)));
+        assertEquals(new BigDecimal(60), myTestAccount.withdraw(1, new BigDecimal(40)));
+        assertEquals(new BigDecimal(80), myTestAccount.deposit(2, new BigDecimal(20)));
+        assertEquals(new BigDecimal(80), myTestAccount.deposit(2, new BigDecimal(20)));
+        assertEquals(new BigDecimal(80), myTestAccount.getBalance());
+
+        // A rejected withdrawal is remembered as rejected, even if the balance would allow it later
+        assertEquals(new BigDecimal(80), myTestAccount.withdraw(3, new BigDecimal(90)));
+        myTestAccount.deposit(new BigDecimal(20));
+        assertEquals(new BigDecimal(80), myTestAccount.withdraw(3, new BigDecimal(90)));
+        assertEquals(new BigDecimal(100), myTestAccount.getBalance());
+
+        // Without a key every call runs
+        myTestAccount.deposit(BigDecimal.ONE);
+        myTestAccount.deposit(BigDecimal.ONE);
+        assertEquals(new BigDecimal(102), myTestAccount.getBalance());
+    }
+
+    @Test
+    void testTransferAndConvert() {
+        DedupCache cache = new DedupCache(1024, 60_000);
+        IdempotentAccount myTestAccount = new IdempotentAccount(new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO), cache);
+        Account target = new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO);
+
+        myTestAccount.TransferToAccount(10, target);
+        myTestAccount.deposit(new BigDecimal(5));
+        myTestAccount.TransferToAccount(10, target);
+        assertEquals(new BigDecimal(5), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(100), target.getBalance());
+
+        assertTrue(myTestAccount.convertToCurrency(11, "EUR", new BigDecimal(2)));
+        assertTrue(myTestAccount.convertToCurrency(11, "EUR", new BigDecimal(2)));
+        assertEquals(new BigDecimal(10), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(0), myTestAccount.withdrawAll(12));
+        assertEquals(new BigDecimal(0), myTestAccount.withdrawAll(12));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class IndexedAccountTest {
+
+    private static void assertTotals(AggregateIndex index, String currency, long accounts, String balance, long overdrawn,
+                                     String overdrawnAmount, String headroom) {
+        AggregateIndex.Totals totals = index.get(currency);
+        assertEquals(accounts, totals.accounts());
+        assertEquals(0, new BigDecimal(balance).compareTo(totals.balance()), "balance " + totals.balance());
+        assertEquals(overdrawn, totals.overdrawn());
+        assertEquals(0, new BigDecimal(overdrawnAmount).compareTo(totals.overdrawnAmount()), "overdrawn " + totals.overdrawnAmount());
+        assertEquals(0, new BigDecimal(headroom).compareTo(totals.headroom()), "headroom " + totals.headroom());
+    }
+
+    @Test
+    void testOperationsUpdateIndex() {
+        AggregateIndex index = new AggregateIndex();
+        IndexedAccount myTestAccount = new IndexedAccount(new Account(new BigDecimal(100), "SEK", new BigDecimal(50)), index);
+        IndexedAccount myTestAccount2 = new IndexedAccount(new LongAccount(new BigDecimal(-20), "SEK", new BigDecimal(30)), index);
+        assertTotals(index, "SEK", 2, "80", 1, "20", "60");
+
+        myTestAccount.withdraw(new BigDecimal(130));
+        assertTotals(index, "SEK", 2, "-50", 2, "50", "30");
+        myTestAccount.withdraw(new BigDecimal(21)); // Rejected, nothing changes
+        assertTotals(index, "SEK", 2, "-50", 2, "50", "30");
+
+        myTestAccount.deposit(new BigDecimal("40.5"));
+        assertTotals(index, "SEK", 2, "-9.5", 1, "20", "60");
+
+        myTestAccount.setBalance(new BigDecimal(200));
+        assertTotals(index, "SEK", 2, "180", 1, "20", "60");
+
+        // Both sides of a transfer between indexed accounts
+        myTestAccount.TransferToAccount(myTestAccount2);
+        assertTotals(index, "SEK", 2, "180", 0, "0", "80");
+        assertEquals(0, index.getOverdrawnCount());
+
+        // A conversion moves the account to the other currency, with max_overdrawn rescaled
+        myTestAccount2.convertToCurrency("EUR", new BigDecimal("0.1"));
+        assertTotals(index, "SEK", 1, "0", 0, "0", "50");
+        assertTotals(index, "EUR", 1, "18", 0, "0", "3");
+
+        myTestAccount2.withdrawAll();
+        assertTotals(index, "EUR", 1, "0", 0, "0", "3");
+
+        myTestAccount2.detach();
+        assertTotals(index, "EUR", 0, "0", 0, "0", "0");
+        assertTotals(index, "USD", 0, "0", 0, "0", "0");
+    }
+
+    @Test
+    void testMatchesFullScan() {
+        AggregateIndex index = new AggregateIndex();
+        List<IndexedAccount> accounts = new ArrayList<>();
+        String[] currencies = {"SEK", "EUR", "USD"};
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            accounts.add(new IndexedAccount(new Account(new BigDecimal(random.nextInt(1000)),
+                    currencies[i % 3], new BigDecimal(random.nextInt(500))), index));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            IndexedAccount account = accounts.get(random.nextInt(accounts.size()));
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(100_000), 2);
+            switch (random.nextInt(6)) {
+                case 0 -> account.deposit(amount);
+                case 1 -> account.withdraw(amount);
+                case 2 -> account.withdrawAll();
+                case 3 -> account.setBalance(amount.subtract(new BigDecimal(500)));
+                case 4 -> account.TransferToAccount(accounts.get(random.nextInt(accounts.size())));
+                default -> account.convertToCurrency(currencies[random.nextInt(3)], new BigDecimal("0.5"));
+            }
+        }
+
+        for (String currency : currencies) {
+            long count = 0;
+            long overdrawn = 0;
+            BigDecimal balance = BigDecimal.ZERO;
+            BigDecimal headroom = BigDecimal.ZERO;
+            for (IndexedAccount account : accounts) {
+                if (account.getCurrency().equals(currency)) {
+                    count++;
+                    balance = balance.add(account.getBalance());
+                    headroom = headroom.add(account.getMaxOverdrawn().add(account.getBalance().min(BigDecimal.ZERO)));
+                    if (account.getBalance().signum() < 0) {
+                        overdrawn++;
+                    }
+                }
+            }
+            AggregateIndex.Totals totals = index.get(currency);
+            assertEquals(count, totals.accounts());
+            assertEquals(0, balance.compareTo(totals.balance()));
+            assertEquals(overdrawn, totals.overdrawn());
+            assertEquals(0, headroom.compareTo(totals.headroom()));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class InstrumentedAccountTest {
+
+    @Test
+    void testCountsAndRejectReasons() {
+        for (IAccount account : new IAccount[]{
+                new Account(new BigDecimal(100), "SEK", new BigDecimal(50)),
+                new LongAccount(new BigDecimal(100), "SEK", new BigDecimal(50)),
+                new ConcurrentAccount(new BigDecimal(100), "SEK", new BigDecimal(50))}) {
+            AccountMetrics metrics = new AccountMetrics();
+            InstrumentedAccount myTestAccount = new InstrumentedAccount(account, metrics);
+
+            assertEquals(new BigDecimal(30), myTestAccount.withdraw(new BigDecimal(70)));
+            assertEquals(new BigDecimal(30), myTestAccount.withdraw(new BigDecimal(81)));
+            assertEquals(new BigDecimal(30), myTestAccount.withdraw(new BigDecimal(-1)));
+            assertEquals(new BigDecimal(40), myTestAccount.deposit(new BigDecimal(10)));
+            assertEquals(new BigDecimal(40), myTestAccount.deposit(BigDecimal.ZERO));
+            assertFalse(myTestAccount.convertToCurrency("EUR", -1));
+            assertTrue(myTestAccount.convertToCurrency("EUR", 1.0));
+            myTestAccount.TransferToAccount(new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO));
+            myTestAccount.TransferToAccount(new Account(BigDecimal.ZERO, "EUR", BigDecimal.ZERO));
+            myTestAccount.TransferToAccount(new Account(BigDecimal.ZERO, "EUR", BigDecimal.ZERO));
+            myTestAccount.withdrawAll();
+
+            assertEquals(1, metrics.getSuccessCount(AccountOperation.WITHDRAW));
+            assertEquals(1, metrics.getRejectionCount(AccountOperation.WITHDRAW, RejectReason.INSUFFICIENT_FUNDS));
+            assertEquals(1, metrics.getRejectionCount(AccountOperation.WITHDRAW, RejectReason.INVALID_AMOUNT));
+            assertEquals(1, metrics.getSuccessCount(AccountOperation.DEPOSIT));
+            assertEquals(1, metrics.getRejectionCount(AccountOperation.DEPOSIT, RejectReason.INVALID_AMOUNT));
+            assertEquals(1, metrics.getSuccessCount(AccountOperation.CONVERT));
+            assertEquals(1, metrics.getRejectionCount(AccountOperation.CONVERT, RejectReason.INVALID_RATE));
+            assertEquals(1, metrics.getSuccessCount(AccountOperation.TRANSFER));
+            assertEquals(1, metrics.getRejectionCount(AccountOperation.TRANSFER, RejectReason.CURRENCY_MISMATCH));
+            assertEquals(1, metrics.getRejectionCount(AccountOperation.TRANSFER, RejectReason.NO_FUNDS));
+            assertEquals(2, metrics.getRejectionCount(AccountOperation.TRANSFER));
+            assertEquals(1, metrics.getRejectionCount(AccountOperation.WITHDRAW_ALL, RejectReason.NO_FUNDS));
+            assertEquals(3, metrics.getLatency(AccountOperation.TRANSFER).getCount());
+        }
+    }
+
+    @Test
+    void testFailuresAreRecorded() {
+        // JPY has no decimals, LongAccount throws for amounts it can't hold instead of rejecting them
+        AccountMetrics metrics = new AccountMetrics();
+        InstrumentedAccount myTestAccount = new InstrumentedAccount(new LongAccount(new BigDecimal(100), "JPY", BigDecimal.ZERO), metrics);
+        assertThrows(ArithmeticException.class, () -> myTestAccount.withdraw(new BigDecimal("0.5")));
+        assertThrows(ArithmeticException.class, () -> myTestAccount.deposit(new BigDecimal("0.5")));
+        assertThrows(ArithmeticException.class, () -> myTestAccount.tryDeposit(new BigDecimal("0.5")));
+        assertThrows(ArithmeticException.class, () -> myTestAccount.convertToCurrency("JPY", new BigDecimal("1E+18")));
+        assertEquals(1, metrics.getRejectionCount(AccountOperation.WITHDRAW, RejectReason.OTHER));
+        assertEquals(2, metrics.getRejectionCount(AccountOperation.DEPOSIT, RejectReason.OTHER));
+        assertEquals(1, metrics.getRejectionCount(AccountOperation.CONVERT, RejectReason.OTHER));
+        assertEquals(2, metrics.getLatency(AccountOperation.DEPOSIT).getCount());
+        assertEquals(new BigDecimal(100), myTestAccount.getBalance());
+    }
+
+    @Test
+    void testDisabled() {
+        AccountMetrics metrics = new AccountMetrics(false);
+        InstrumentedAccount myTestAccount = new InstrumentedAccount(new Account(), metrics);
+        assertEquals(new BigDecimal(5), myTestAccount.deposit(new BigDecimal(5)));
+        assertEquals(0, metrics.getSuccessCount(AccountOperation.DEPOSIT));
+        assertEquals(0, metrics.getLatency(AccountOperation.DEPOSIT).getCount());
+
+        metrics.setEnabled(true);
+        myTestAccount.deposit(new BigDecimal(5));
+        assertEquals(1, metrics.getSuccessCount(AccountOperation.DEPOSIT));
+    }
+
+    @Test
+    void testSnapshotAndJmx() throws Exception {
+        AccountMetrics metrics = new AccountMetrics();
+        InstrumentedAccount myTestAccount = new InstrumentedAccount(new Account(), metrics);
+        myTestAccount.deposit(BigDecimal.ONE);
+        AccountMetrics snapshot = metrics.snapshot();
+        myTestAccount.deposit(BigDecimal.ONE);
+        assertEquals(1, snapshot.getSuccessCount(AccountOperation.DEPOSIT));
+        assertEquals(2, metrics.getSuccessCount(AccountOperation.DEPOSIT));
+
+        ObjectName name = metrics.register("InstrumentedAccountTest");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(true, server.getAttribute(name, "Enabled"));
+            assertNotNull(server.getAttribute(name, "SuccessCounts"));
+            assertNotNull(server.getAttribute(name, "LatencyP99"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0, metrics.getSuccessCount(AccountOperation.DEPOSIT));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
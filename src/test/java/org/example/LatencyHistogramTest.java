@@ -0,0 +1,50 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBuckets() {
+        // Small values get a bucket each, larger ones share a bucket with values within 12.5%
+        for (long value = 0; value < 8; value++) {
+            assertEquals(value, LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value)));
+        }
+        assertEquals(LatencyHistogram.bucketOf(1000), LatencyHistogram.bucketOf(1020));
+        assertNotEquals(LatencyHistogram.bucketOf(1000), LatencyHistogram.bucketOf(1200));
+        for (long value : new long[]{8, 100, 1000, 123_456_789, Long.MAX_VALUE}) {
+            long upper = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(value));
+            assertTrue(upper >= value);
+            assertTrue(upper - value <= value / 8);
+        }
+        assertTrue(LatencyHistogram.bucketOf(Long.MAX_VALUE) < LatencyHistogram.BUCKETS);
+    }
+
+    @Test
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8, "p50 was " + p50);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990 && p99 <= 1000, "p99 was " + p99);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+
+        // The copy keeps the old numbers
+        LatencyHistogram copy = histogram.copy();
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(1000, copy.getCount());
+        assertEquals(p99, copy.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,149 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class LongAccountTest {
+
+    @Test
+    void testGetMaxOverdrawn() {
+        LongAccount myTestAccount = new LongAccount(BigDecimal.ZERO, "SEK", new BigDecimal(-1));
+        assertEquals(BigDecimal.ZERO, myTestAccount.getMaxOverdrawn()); //max_overdrawn must be non-negative
+
+        LongAccount myTestAccount2 = new LongAccount(BigDecimal.ZERO, "SEK", new BigDecimal(1000));
+        assertEquals(new BigDecimal(1000), myTestAccount2.getMaxOverdrawn());
+        assertEquals(100000, myTestAccount2.getMaxOverdrawnMinor());
+    }
+
+    @Test
+    void testSetBalance() {
+        LongAccount myTestAccount = new LongAccount(BigDecimal.ZERO, "SEK", BigDecimal.ONE);
+
+        //should not be allowed to set balance to lower that -1 * maxOverdrawn
+        myTestAccount.setBalance(new BigDecimal(-2));
+        assertEquals(BigDecimal.ZERO, myTestAccount.getBalance());
+
+        myTestAccount.setBalance(new BigDecimal(42));
+        assertEquals(new BigDecimal(42), myTestAccount.getBalance());
+
+        myTestAccount.setBalance(new BigDecimal("-0.99"));
+        assertEquals(new BigDecimal("-0.99"), myTestAccount.getBalance());
+    }
+
+    @Test
+    void testWithdraw() {
+        // Same cases as AccountTest.testWithdraw
+        assertEquals(BigDecimal.ZERO, new LongAccount(new BigDecimal(100), "SEK", BigDecimal.ZERO).withdraw(new BigDecimal(100)));
+        assertEquals(new BigDecimal(10), new LongAccount(new BigDecimal(10), "SEK", new BigDecimal(10)).withdraw(new BigDecimal(-20)));
+        assertEquals(new BigDecimal(100), new LongAccount(new BigDecimal(100), "SEK", new BigDecimal(-100)).withdraw(BigDecimal.ZERO));
+        assertEquals(new BigDecimal(-100), new LongAccount(new BigDecimal(1000), "SEK", new BigDecimal(200)).withdraw(new BigDecimal(1100)));
+        assertEquals(new BigDecimal(1000), new LongAccount(new BigDecimal(1000), "USD", new BigDecimal(200)).withdraw(new BigDecimal(1201)));
+
+        // Minor units, withdrawing exactly down to -max_overdrawn is allowed, one öre more is not
+        LongAccount myTestAccount = new LongAccount(1000, "SEK", 500);
+        assertEquals(-500, myTestAccount.withdrawMinor(1500));
+        assertEquals(-500, myTestAccount.withdrawMinor(1));
+
+        // Withdrawals that would wrap around are rejected like in Account
+        LongAccount myTestAccount2 = new LongAccount(-(1L << 62), "SEK", 0);
+        assertEquals(-(1L << 62), myTestAccount2.withdrawMinor(Long.MAX_VALUE));
+        LongAccount myTestAccount3 = new LongAccount(Long.MIN_VALUE + 1, "SEK", Long.MAX_VALUE);
+        assertEquals(Long.MIN_VALUE + 1, myTestAccount3.withdrawMinor(2));
+        // balance + max_overdrawn doesn't fit in a long, the withdrawal is still allowed
+        LongAccount myTestAccount4 = new LongAccount(Long.MAX_VALUE, "SEK", Long.MAX_VALUE);
+        assertEquals(0, myTestAccount4.withdrawMinor(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testDeposit() {
+        // Same cases as AccountTest.testDeposit
+        assertEquals(new BigDecimal(150), new LongAccount(new BigDecimal(100), "SEK", BigDecimal.ZERO).deposit(new BigDecimal(50)));
+        assertEquals(new BigDecimal(-80), new LongAccount(new BigDecimal(-100), "SEK", new BigDecimal(150)).deposit(new BigDecimal(20)));
+        assertEquals(new BigDecimal(2000), new LongAccount(new BigDecimal(2000), "SEK", BigDecimal.ZERO).deposit(new BigDecimal(-500)));
+
+        assertEquals(new BigDecimal("100.25"), new LongAccount(new BigDecimal(100), "SEK", BigDecimal.ZERO).deposit(new BigDecimal("0.25")));
+    }
+
+    @Test
+    void testInvalidAmounts() {
+        LongAccount myTestAccount = new LongAccount(new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        // Fractions of an öre can't be represented
+        assertThrows(ArithmeticException.class, () -> myTestAccount.deposit(new BigDecimal("0.001")));
+        // Overflow is detected instead of wrapping around
+        myTestAccount.setBalanceMinor(Long.MAX_VALUE - 1);
+        assertThrows(ArithmeticException.class, () -> myTestAccount.depositMinor(2));
+        assertEquals(Long.MAX_VALUE - 1, myTestAccount.getBalanceMinor());
+    }
+
+    @Test
+    void testConvertToCurrency() {
+        // Same cases as AccountTest.testConvertToCurrency
+        LongAccount myTestAccount = new LongAccount(new BigDecimal(2000), "USD", new BigDecimal(100));
+        assertTrue(myTestAccount.convertToCurrency("SEK", 10.0));
+        assertEquals(new BigDecimal(20000), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(1000), myTestAccount.getMaxOverdrawn());
+        assertEquals("SEK", myTestAccount.getCurrency());
+
+        LongAccount myTestAccount2 = new LongAccount(new BigDecimal(-100), "EUR", new BigDecimal(200));
+        myTestAccount2.convertToCurrency("SEK", 10.0);
+        assertEquals(new BigDecimal(-1000), myTestAccount2.getBalance());
+        assertEquals(new BigDecimal(2000), myTestAccount2.getMaxOverdrawn());
+
+        LongAccount myTestAccount3 = new LongAccount(new BigDecimal(50), "SEK", new BigDecimal(200));
+        myTestAccount3.convertToCurrency("USD", 0.1);
+        assertEquals(new BigDecimal(5), myTestAccount3.getBalance());
+        assertEquals(new BigDecimal(20), myTestAccount3.getMaxOverdrawn());
+
+        LongAccount myTestAccount4 = new LongAccount(new BigDecimal(10), "SEK", new BigDecimal(20));
+        assertFalse(myTestAccount4.convertToCurrency("USD", -10.0));
+        assertEquals(new BigDecimal(10), myTestAccount4.getBalance());
+        assertEquals(new BigDecimal(20), myTestAccount4.getMaxOverdrawn());
+        assertEquals("SEK", myTestAccount4.getCurrency());
+
+        // Converting to a currency without decimals rounds half even
+        LongAccount myTestAccount5 = new LongAccount(new BigDecimal("10.50"), "SEK", BigDecimal.ZERO);
+        myTestAccount5.convertToCurrency("JPY", 14.0);
+        assertEquals(new BigDecimal(147), myTestAccount5.getBalance());
+        assertEquals(147, myTestAccount5.getBalanceMinor());
+    }
+
+    @Test
+    void testTransferToAccount() {
+        // Same cases as AccountTest.testTransferToAccount
+        LongAccount myTestAccountA = new LongAccount(new BigDecimal(-100), "SEK", new BigDecimal(100));
+        LongAccount myTestAccountB = new LongAccount(new BigDecimal(200), "SEK", new BigDecimal(10));
+        myTestAccountA.TransferToAccount(myTestAccountB);
+        assertEquals(new BigDecimal(-100), myTestAccountA.getBalance());
+        assertEquals(new BigDecimal(200), myTestAccountB.getBalance());
+
+        LongAccount myTestAccountA2 = new LongAccount(new BigDecimal(10), "SEK", new BigDecimal(0));
+        LongAccount myTestAccountB2 = new LongAccount(new BigDecimal(-200), "SEK", new BigDecimal(1000));
+        myTestAccountA2.TransferToAccount(myTestAccountB2);
+        assertEquals(new BigDecimal(0), myTestAccountA2.getBalance());
+        assertEquals(new BigDecimal(-190), myTestAccountB2.getBalance());
+
+        LongAccount myTestAccountA4 = new LongAccount(new BigDecimal(10), "USD", new BigDecimal(100));
+        LongAccount myTestAccountB4 = new LongAccount(new BigDecimal(20), "SEK", new BigDecimal(1000));
+        myTestAccountA4.TransferToAccount(myTestAccountB4);
+        assertEquals(new BigDecimal(10), myTestAccountA4.getBalance());
+        assertEquals(new BigDecimal(20), myTestAccountB4.getBalance());
+
+        // Transfers to the BigDecimal based Account work as well
+        LongAccount myTestAccountA5 = new LongAccount(new BigDecimal("10.5"), "SEK", BigDecimal.ZERO);
+        Account myTestAccountB5 = new Account(new BigDecimal(20), "SEK", BigDecimal.ZERO);
+        myTestAccountA5.TransferToAccount(myTestAccountB5);
+        assertEquals(0, new BigDecimal("30.5").compareTo(myTestAccountB5.getBalance()));
+        assertEquals(BigDecimal.ZERO, myTestAccountA5.getBalance());
+    }
+
+    @Test
+    void testWithdrawAll() {
+        assertEquals(new BigDecimal(-200), new LongAccount(new BigDecimal(-200), "SEK", new BigDecimal(1000)).withdrawAll());
+        assertEquals(new BigDecimal(0), new LongAccount(new BigDecimal(200), "SEK", new BigDecimal(1000)).withdrawAll());
+        assertEquals(new BigDecimal(0), new LongAccount(new BigDecimal(0), "SEK", new BigDecimal(1000)).withdrawAll());
+    }
+}
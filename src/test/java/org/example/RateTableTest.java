@@ -0,0 +1,85 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class RateTableTest {
+
+    @Test
+    void testConvertWithCachedRate() {
+        RateTable table = new RateTable();
+        table.put("USD", "SEK", 10.0);
+        table.put("SEK", "USD", 0.1);
+
+        // Same results as AccountTest.testConvertToCurrency, but with the cached rates
+        Account myTestAccount = new Account(new BigDecimal(2000), "USD", new BigDecimal(100));
+        assertTrue(table.convert(myTestAccount, "SEK"));
+        assertEquals(new BigDecimal(20000), myTestAccount.getBalance());
+        assertEquals(new BigDecimal(1000), myTestAccount.getMaxOverdrawn());
+        assertEquals("SEK", myTestAccount.getCurrency());
+
+        Account myTestAccount3 = new Account(new BigDecimal(50), "SEK", new BigDecimal(200));
+        assertTrue(table.convert(myTestAccount3, "USD"));
+        assertEquals(new BigDecimal(5), myTestAccount3.getBalance());
+        assertEquals(new BigDecimal(20), myTestAccount3.getMaxOverdrawn());
+
+        // No cached rate, nothing changes
+        Account myTestAccount4 = new Account(new BigDecimal(10), "EUR", BigDecimal.ZERO);
+        assertFalse(table.convert(myTestAccount4, "SEK"));
+        assertEquals(new BigDecimal(10), myTestAccount4.getBalance());
+        assertEquals("EUR", myTestAccount4.getCurrency());
+    }
+
+    @Test
+    void testCachedRateMatchesDoubleRate() {
+        RateTable table = new RateTable();
+        ExchangeRate rate = table.put("EUR", "SEK", 11.4567);
+        Account viaDouble = new Account(new BigDecimal("123.45"), "EUR", new BigDecimal("10.5"));
+        Account viaTable = new Account(new BigDecimal("123.45"), "EUR", new BigDecimal("10.5"));
+        viaDouble.convertToCurrency("SEK", 11.4567);
+        assertTrue(rate.convert(viaTable));
+        assertEquals(viaDouble.getBalance(), viaTable.getBalance());
+        assertEquals(viaDouble.getMaxOverdrawn(), viaTable.getMaxOverdrawn());
+        // A converted account is no longer in EUR, converting again with the same rate does nothing
+        assertFalse(rate.convert(viaTable));
+    }
+
+    @Test
+    void testVersions() {
+        RateTable table = new RateTable();
+        ExchangeRate first = table.put("EUR", "SEK", 11.0);
+        assertTrue(table.isCurrent(first));
+        ExchangeRate second = table.put("EUR", "SEK", 11.5);
+        assertTrue(second.getVersion() > first.getVersion());
+        assertFalse(table.isCurrent(first));
+        assertSame(second, table.get("EUR", "SEK"));
+        assertEquals(1, table.size());
+        assertThrows(IllegalArgumentException.class, () -> table.put("EUR", "SEK", -1.0));
+    }
+
+    @Test
+    void testEviction() {
+        RateTable table = new RateTable(2);
+        table.put("EUR", "SEK", 11.0);
+        table.put("USD", "SEK", 10.0);
+        table.put("EUR", "SEK", 11.5); // Update, EUR->SEK is now the newest
+        table.put("SEK", "USD", 0.1); // Table full, USD->SEK is the oldest and is evicted
+        assertEquals(2, table.size());
+        assertNull(table.get("USD", "SEK"));
+        assertNotNull(table.get("EUR", "SEK"));
+        assertNotNull(table.get("SEK", "USD"));
+
+        long version = table.currentVersion();
+        table.put("USD", "EUR", 0.9); // Evicts EUR->SEK
+        assertNull(table.get("EUR", "SEK"));
+        assertEquals(1, table.evictOlderThan(version + 1)); // Removes SEK->USD
+        assertEquals(1, table.size());
+        assertNotNull(table.get("USD", "EUR"));
+        assertTrue(table.remove("USD", "EUR"));
+        assertEquals(0, table.size());
+    }
+}
@@ -0,0 +1,174 @@
+package org.example;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class ShardedLedgerTest {
+
+    private static BigDecimal balance(ShardedLedger ledger, long id) {
+        return ledger.submit(id, accounts -> accounts.get(id).getBalance()).join();
+    }
+
+    /*
+     * Two ids on different shards, and one on the same shard as the first
+     * */
+    private static long[] ids(ShardedLedger ledger) {
+        long first = 0;
+        long other = 1;
+        while (ledger.shardOf(other) == ledger.shardOf(first)) {
+            other++;
+        }
+        long same = 1;
+        while (same == other || ledger.shardOf(same) != ledger.shardOf(first)) {
+            same++;
+        }
+        return new long[]{first, other, same};
+    }
+
+    @Test
+    void testTransfer() {
+        try (ShardedLedger ledger = new ShardedLedger(4)) {
+            long[] ids = ids(ledger);
+            for (long id : ids) {
+                assertTrue(ledger.create(id, new BigDecimal(100), "SEK", BigDecimal.ZERO).join());
+            }
+            assertFalse(ledger.create(ids[0], BigDecimal.ZERO, "SEK", BigDecimal.ZERO).join());
+
+            // Between shards
+            assertEquals(TransferResult.SUCCESS, ledger.transfer(ids[0], ids[1]).join());
+            assertEquals(0, BigDecimal.ZERO.compareTo(balance(ledger, ids[0])));
+            assertEquals(new BigDecimal(200), balance(ledger, ids[1]));
+            assertEquals(TransferResult.NO_FUNDS, ledger.transfer(ids[0], ids[1]).join());
+
+            // Within a shard
+            assertEquals(TransferResult.SUCCESS, ledger.transfer(ids[2], ids[0]).join());
+            assertEquals(new BigDecimal(100), balance(ledger, ids[0]));
+            assertEquals(TransferResult.SAME_ACCOUNT, ledger.transfer(ids[0], ids[0]).join());
+            assertEquals(new BigDecimal(100), balance(ledger, ids[0]));
+        }
+    }
+
+    @Test
+    void testRejectedTransferIsRefunded() {
+        try (ShardedLedger ledger = new ShardedLedger(4)) {
+            long[] ids = ids(ledger);
+            ledger.create(ids[0], new BigDecimal("12.5"), "SEK", BigDecimal.ZERO);
+            ledger.create(ids[1], BigDecimal.ZERO, "EUR", BigDecimal.ZERO);
+            ledger.create(ids[2], BigDecimal.ZERO, "EUR", BigDecimal.ZERO);
+
+            assertEquals(TransferResult.CURRENCY_MISMATCH, ledger.transfer(ids[0], ids[1]).join());
+            assertEquals(TransferResult.CURRENCY_MISMATCH, ledger.transfer(ids[0], ids[2]).join());
+            assertEquals(new BigDecimal("12.5"), balance(ledger, ids[0]));
+
+            CompletionException e = assertThrows(CompletionException.class, () -> ledger.transfer(ids[0], 999_999).join());
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            assertEquals(new BigDecimal("12.5"), balance(ledger, ids[0]));
+
+            // Targets beyond their overdraft limit reject the deposit, on another shard and on the same shard
+            for (long id : new long[]{ids[1], ids[2]}) {
+                ledger.submit(id, accounts -> accounts.put(id, new Account(new BigDecimal(-200), "SEK", new BigDecimal(100)))).join();
+                assertEquals(TransferResult.DEPOSIT_REJECTED, ledger.transfer(ids[0], id).join());
+                assertEquals(new BigDecimal("12.5"), balance(ledger, ids[0]));
+                assertEquals(new BigDecimal(-200), balance(ledger, id));
+            }
+        }
+    }
+
+    @Test
+    void testFailingAccountsCompleteTheTransfer() throws InterruptedException {
+        IAccount throwing = new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO) {
+            @Override
+            public BigDecimal deposit(BigDecimal amount_to_deposit) {
+                throw new IllegalStateException("Deposit failed");
+            }
+        };
+        ShardedLedger ledger = new ShardedLedger(4);
+        long[] ids = ids(ledger);
+        ledger.create(ids[0], new BigDecimal(100), "SEK", BigDecimal.ZERO).join();
+        ledger.create(ids[2], new BigDecimal(50), "SEK", BigDecimal.ZERO).join();
+        ledger.submit(ids[1], accounts -> accounts.put(ids[1], throwing)).join();
+
+        // The deposit throws, the money goes back and the transfer fails with the deposit's exception
+        CompletionException e = assertThrows(CompletionException.class, () -> ledger.transfer(ids[0], ids[1]).join());
+        assertEquals("Deposit failed", e.getCause().getMessage());
+        assertEquals(new BigDecimal(100), balance(ledger, ids[0]));
+
+        // The source is gone when the refund arrives, the transfer still completes
+        CountDownLatch depositing = new CountDownLatch(1);
+        CountDownLatch sourceRemoved = new CountDownLatch(1);
+        ledger.submit(ids[1], accounts -> accounts.put(ids[1], new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO) {
+            @Override
+            public boolean tryDeposit(BigDecimal amount_to_deposit) {
+                depositing.countDown();
+                try {
+                    sourceRemoved.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Deposit failed");
+            }
+        })).join();
+        CompletableFuture<TransferResult> transfer = ledger.transfer(ids[2], ids[1]);
+        depositing.await();
+        ledger.submit(ids[2], accounts -> accounts.remove(ids[2])).join();
+        sourceRemoved.countDown();
+        e = assertThrows(CompletionException.class, transfer::join);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertEquals("Could not refund 50 to account " + ids[2], e.getCause().getMessage());
+
+        // Nothing is left pending, so close() returns
+        ledger.close();
+    }
+
+    @RepeatedTest(5)
+    void testConcurrentProducers() throws InterruptedException {
+        int accounts = 256;
+        try (ShardedLedger ledger = new ShardedLedger(8)) {
+            for (long id = 0; id < accounts; id++) {
+                // Overdraft large enough that no withdrawal is ever rejected, even right after a transfer emptied the account
+                ledger.create(id, new BigDecimal(100), "SEK", new BigDecimal(1_000_000));
+            }
+            Thread[] producers = new Thread[8];
+            for (int t = 0; t < producers.length; t++) {
+                long seed = t;
+                producers[t] = new Thread(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    List<CompletableFuture<?>> replies = new ArrayList<>();
+                    for (int i = 0; i < 5000; i++) {
+                        long id = random.nextInt(accounts);
+                        if (random.nextBoolean()) {
+                            replies.add(ledger.transfer(id, random.nextInt(accounts)));
+                        } else {
+                            // A deposit followed by the same withdrawal leaves the total unchanged
+                            replies.add(ledger.submit(id, a -> a.get(id).deposit(BigDecimal.ONE))
+                                    .thenCompose(b -> ledger.submit(id, a -> a.get(id).withdraw(BigDecimal.ONE))));
+                        }
+                    }
+                    replies.forEach(CompletableFuture::join);
+                });
+                producers[t].start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            BigDecimal total = BigDecimal.ZERO;
+            for (long id = 0; id < accounts; id++) {
+                BigDecimal balance = balance(ledger, id);
+                total = total.add(balance);
+            }
+            assertEquals(0, new BigDecimal(100 * accounts).compareTo(total));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TimerWheelTest {
+
+    private static final class Recorded extends TimerWheel.Timeout {
+
+        private final List<Recorded> expired;
+
+        Recorded(List<Recorded> expired) {
+            this.expired = expired;
+        }
+
+        @Override
+        protected void expire() {
+            expired.add(this);
+        }
+    }
+
+    @Test
+    void testExpiresAfterDeadline() {
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        List<Recorded> expired = new ArrayList<>();
+        Recorded first = new Recorded(expired);
+        Recorded second = new Recorded(expired);
+        wheel.schedule(first, 25); // Rounded up to 30
+        wheel.schedule(second, 1);
+        assertEquals(2, wheel.size());
+
+        wheel.advanceTo(9);
+        assertTrue(expired.isEmpty());
+        wheel.advanceTo(10);
+        assertEquals(List.of(second), expired);
+        wheel.advanceTo(29);
+        assertEquals(List.of(second), expired);
+        wheel.advanceTo(30);
+        assertEquals(List.of(second, first), expired);
+        assertEquals(0, wheel.size());
+        assertEquals(30, wheel.now());
+    }
+
+    @Test
+    void testDeadlinesBeyondOneRound() {
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        List<Recorded> expired = new ArrayList<>();
+        Recorded late = new Recorded(expired);
+        Recorded early = new Recorded(expired);
+        wheel.schedule(late, 250); // Same bucket as 10, three rounds later
+        wheel.schedule(early, 10);
+
+        wheel.advanceTo(240);
+        assertEquals(List.of(early), expired);
+        wheel.advanceTo(250);
+        assertEquals(List.of(early, late), expired);
+    }
+
+    @Test
+    void testCancelAndReschedule() {
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        List<Recorded> expired = new ArrayList<>();
+        Recorded timeout = new Recorded(expired);
+        wheel.schedule(timeout, 50);
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(timeout, 50));
+
+        assertTrue(wheel.cancel(timeout));
+        assertFalse(wheel.cancel(timeout));
+        wheel.advanceTo(100);
+        assertTrue(expired.isEmpty());
+
+        wheel.schedule(timeout, 20);
+        wheel.advanceTo(120);
+        assertEquals(List.of(timeout), expired);
+        assertFalse(wheel.cancel(timeout));
+    }
+
+    @Test
+    void testExpireCanScheduleAgain() {
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        int[] runs = new int[1];
+        TimerWheel.Timeout repeating = new TimerWheel.Timeout() {
+            @Override
+            protected void expire() {
+                if (++runs[0] < 3) {
+                    wheel.schedule(this, 10);
+                }
+            }
+        };
+        wheel.schedule(repeating, 10);
+        wheel.advanceTo(10);
+        wheel.advanceTo(20);
+        wheel.advanceTo(30);
+        wheel.advanceTo(100);
+        assertEquals(3, runs[0]);
+    }
+
+    @Test
+    void testThrowingTimeoutDoesntStopOthers() {
+        TimerWheel wheel = new TimerWheel(10, 8, 0);
+        List<Recorded> expired = new ArrayList<>();
+        Recorded before = new Recorded(expired);
+        Recorded after = new Recorded(expired);
+        TimerWheel.Timeout throwing = new TimerWheel.Timeout() {
+            @Override
+            protected void expire() {
+                throw new IllegalStateException("Broken timeout");
+            }
+        };
+        wheel.schedule(before, 10);
+        wheel.schedule(throwing, 10);
+        wheel.schedule(after, 10);
+
+        List<Throwable> reported = new ArrayList<>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+        try {
+            wheel.advanceTo(10);
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+        assertEquals(2, expired.size());
+        assertEquals(1, reported.size());
+        assertEquals("Broken timeout", reported.get(0).getMessage());
+    }
+}
@@ -0,0 +1,226 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TransactionJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReplayRebuildsAccounts() throws IOException {
+        Path file = tempDir.resolve("accounts.journal");
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            JournaledAccount a = journal.create(1, new BigDecimal(1000), "SEK", new BigDecimal(200));
+            JournaledAccount b = journal.create(2, new BigDecimal(-200), "SEK", new BigDecimal(1000));
+            JournaledAccount c = journal.create(3, new BigDecimal(2000), "USD", new BigDecimal(100));
+            a.withdraw(new BigDecimal(1100)); // -100
+            a.withdraw(new BigDecimal(101)); // rejected
+            b.deposit(new BigDecimal("210.25")); // 10.25
+            b.TransferToAccount(a); // b 0, a -89.75
+            c.convertToCurrency("SEK", 10.0); // 20000 SEK, max 1000
+            c.TransferToAccount(new Account(BigDecimal.ZERO, "SEK", BigDecimal.ZERO)); // c 0, money leaves the journal
+            c.TransferToAccount(new Account(BigDecimal.ZERO, "USD", BigDecimal.ZERO)); // nothing happens
+            c.deposit(new BigDecimal(5));
+            b.setBalance(new BigDecimal(-300));
+            b.setBalance(new BigDecimal(-1001)); // Below -max_overdrawn, ignored
+            assertThrows(IllegalArgumentException.class, () -> journal.create(1, BigDecimal.ZERO, "SEK", BigDecimal.ZERO));
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            assertEquals(3, journal.accounts().size());
+            assertEquals(0, new BigDecimal("-89.75").compareTo(journal.account(1).getBalance()));
+            assertEquals(new BigDecimal(-300), journal.account(2).getBalance());
+            JournaledAccount c = journal.account(3);
+            assertEquals(new BigDecimal(5), c.getBalance());
+            assertEquals("SEK", c.getCurrency());
+
+            // Appending continues after the replayed records
+            c.deposit(BigDecimal.ONE);
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            assertEquals(new BigDecimal(6), journal.account(3).getBalance());
+        }
+    }
+
+    @Test
+    void testReplayAcrossChunks() throws IOException {
+        // Tiny chunks so the records have to be spread over many mappings
+        Path file = tempDir.resolve("chunked.journal");
+        Account[] expected = new Account[10];
+        Random random = new Random(3);
+        try (TransactionJournal journal = TransactionJournal.open(file, Account::new, 128, 1)) {
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = new Account(new BigDecimal(100), "EUR", new BigDecimal(50));
+                journal.create(i, new BigDecimal(100), "EUR", new BigDecimal(50));
+            }
+            for (int n = 0; n < 2000; n++) {
+                int i = random.nextInt(expected.length);
+                // Some amounts too big for a long, so both decimal encodings are used
+                BigDecimal amount = n % 100 == 0
+                        ? new BigDecimal("12345678901234567890.5")
+                        : BigDecimal.valueOf(random.nextInt(1, 10000), 2);
+                if (random.nextBoolean()) {
+                    expected[i].deposit(amount);
+                    journal.account(i).deposit(amount);
+                } else {
+                    expected[i].withdraw(amount);
+                    journal.account(i).withdraw(amount);
+                }
+            }
+            assertTrue(journal.position() > 128 * 10);
+        }
+        try (TransactionJournal journal = TransactionJournal.open(file, Account::new, 128, 1)) {
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i].getBalance(), journal.account(i).getBalance());
+            }
+        }
+    }
+
+    @Test
+    void testReplayWithOtherImplementation() throws IOException {
+        Path file = tempDir.resolve("long.journal");
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            journal.create(7, new BigDecimal(50), "SEK", BigDecimal.ZERO).withdraw(new BigDecimal("0.5"));
+            journal.sync();
+        }
+        try (TransactionJournal journal = TransactionJournal.open(file, LongAccount::new, TransactionJournal.DEFAULT_CHUNK_SIZE, 10)) {
+            assertEquals(new BigDecimal("49.5"), journal.account(7).getBalance());
+        }
+    }
+
+    @Test
+    void testTornTailIsCutOff() throws IOException {
+        Path file = tempDir.resolve("torn.journal");
+        long lastComplete;
+        long end;
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            JournaledAccount a = journal.create(1, new BigDecimal(100), "SEK", BigDecimal.ZERO);
+            a.deposit(new BigDecimal(10));
+            lastComplete = journal.position();
+            a.deposit(new BigDecimal(1000));
+            end = journal.position();
+        }
+        // The last record was only partly written when the process died
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x5A, 0x5A, 0x5A}), end - 3);
+        }
+
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            assertEquals(new BigDecimal(110), journal.account(1).getBalance());
+            assertEquals(lastComplete, journal.position());
+            journal.account(1).withdraw(BigDecimal.ONE);
+        }
+        // The records appended after the cut replay normally
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            assertEquals(new BigDecimal(109), journal.account(1).getBalance());
+        }
+    }
+
+    @Test
+    void testConcurrentOperationsReplayInOrder() throws Exception {
+        Path file = tempDir.resolve("concurrent.journal");
+        BigDecimal balance;
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            JournaledAccount a = journal.create(1, new BigDecimal(100), "SEK", BigDecimal.ZERO);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                boolean withdrawing = t % 2 == 0;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        // Whether a withdrawal is accepted depends on the deposits before it, so the order matters
+                        if (withdrawing) {
+                            a.withdraw(new BigDecimal(7));
+                        } else {
+                            a.deposit(new BigDecimal(5));
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            balance = a.getBalance();
+        }
+        try (TransactionJournal journal = TransactionJournal.open(file)) {
+            assertEquals(balance, journal.account(1).getBalance());
+        }
+    }
+
+    @Test
+    void testTransferToOtherJournal() throws IOException {
+        Path file1 = tempDir.resolve("first.journal");
+        Path file2 = tempDir.resolve("second.journal");
+        try (TransactionJournal journal1 = TransactionJournal.open(file1);
+             TransactionJournal journal2 = TransactionJournal.open(file2)) {
+            JournaledAccount a = journal1.create(2, new BigDecimal(100), "SEK", BigDecimal.ZERO);
+            JournaledAccount b = journal2.create(2, BigDecimal.ZERO, "SEK", BigDecimal.ZERO);
+            // Same id in both journals, the money has to end up in the second one
+            a.TransferToAccount(b);
+            assertEquals(BigDecimal.ZERO, a.getBalance());
+            assertEquals(new BigDecimal(100), b.getBalance());
+
+            // Rejected by the other account, so the money is deposited back
+            JournaledAccount c = journal1.create(3, new BigDecimal(50), "SEK", BigDecimal.ZERO);
+            JournaledAccount d = journal2.create(3, new BigDecimal(-200), "SEK", new BigDecimal(100));
+            c.TransferToAccount(d);
+            assertEquals(new BigDecimal(50), c.getBalance());
+            assertEquals(new BigDecimal(-200), d.getBalance());
+        }
+        try (TransactionJournal journal1 = TransactionJournal.open(file1);
+             TransactionJournal journal2 = TransactionJournal.open(file2)) {
+            assertEquals(BigDecimal.ZERO, journal1.account(2).getBalance());
+            assertEquals(new BigDecimal(100), journal2.account(2).getBalance());
+            assertEquals(new BigDecimal(50), journal1.account(3).getBalance());
+            assertEquals(new BigDecimal(-200), journal2.account(3).getBalance());
+        }
+    }
+
+    @Test
+    void testOperationThatCantBeJournaledIsNotApplied() throws IOException {
+        Path file = tempDir.resolve("small.journal");
+        JournaledAccount a;
+        try (TransactionJournal journal = TransactionJournal.open(file, Account::new, 64, 1)) {
+            a = journal.create(1, new BigDecimal(100), "SEK", BigDecimal.ZERO);
+            // Too many digits for a record in a 64 byte chunk
+            BigDecimal huge = new BigDecimal("1" + "0".repeat(120));
+            assertThrows(IllegalArgumentException.class, () -> a.deposit(huge));
+            assertEquals(new BigDecimal(100), a.getBalance());
+            a.deposit(BigDecimal.ONE);
+        }
+        assertThrows(IllegalStateException.class, () -> a.withdraw(BigDecimal.TEN));
+        assertThrows(IllegalStateException.class, () -> a.setBalance(BigDecimal.ZERO));
+        assertEquals(new BigDecimal(101), a.getBalance());
+
+        try (TransactionJournal journal = TransactionJournal.open(file, Account::new, 64, 1)) {
+            assertEquals(new BigDecimal(101), journal.account(1).getBalance());
+        }
+    }
+
+    @Test
+    void testChunkSizeIsChecked() throws IOException {
+        Path file = tempDir.resolve("sized.journal");
+        try (TransactionJournal journal = TransactionJournal.open(file, Account::new, 128, 1)) {
+            journal.create(1, new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        }
+        IOException e = assertThrows(IOException.class, () -> TransactionJournal.open(file, Account::new, 256, 1));
+        assertTrue(e.getMessage().contains("chunk size 128"));
+        try (TransactionJournal journal = TransactionJournal.open(file, Account::new, 128, 1)) {
+            assertEquals(new BigDecimal(100), journal.account(1).getBalance());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.example;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class TransferEngineTest {
+
+    private final TransferEngine engine = new TransferEngine();
+
+    @Test
+    void testTransfer() {
+        Account myTestAccountA = new Account(new BigDecimal(100), "SEK", new BigDecimal(50));
+        Account myTestAccountB = new Account(new BigDecimal(10), "SEK", BigDecimal.ZERO);
+        // Only the requested amount is moved, not the whole balance
+        assertEquals(TransferResult.SUCCESS, engine.transfer(myTestAccountA, myTestAccountB, new BigDecimal(30)));
+        assertEquals(new BigDecimal(70), myTestAccountA.getBalance());
+        assertEquals(new BigDecimal(40), myTestAccountB.getBalance());
+
+        // Transfers may use the overdraft, down to exactly -max_overdrawn
+        assertEquals(TransferResult.SUCCESS, engine.transfer(myTestAccountA, myTestAccountB, new BigDecimal(120)));
+        assertEquals(new BigDecimal(-50), myTestAccountA.getBalance());
+        assertEquals(new BigDecimal(160), myTestAccountB.getBalance());
+    }
+
+    @Test
+    void testRejectedTransfers() {
+        Account myTestAccountA = new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        Account myTestAccountB = new Account(new BigDecimal(10), "SEK", BigDecimal.ZERO);
+        Account myTestAccountC = new Account(new BigDecimal(10), "USD", BigDecimal.ZERO);
+
+        assertEquals(TransferResult.INVALID_AMOUNT, engine.transfer(myTestAccountA, myTestAccountB, BigDecimal.ZERO));
+        assertEquals(TransferResult.INVALID_AMOUNT, engine.transfer(myTestAccountA, myTestAccountB, new BigDecimal(-5)));
+        assertEquals(TransferResult.SAME_ACCOUNT, engine.transfer(myTestAccountA, myTestAccountA, BigDecimal.ONE));
+        assertEquals(TransferResult.CURRENCY_MISMATCH, engine.transfer(myTestAccountA, myTestAccountC, BigDecimal.ONE));
+        assertEquals(TransferResult.INSUFFICIENT_FUNDS, engine.transfer(myTestAccountA, myTestAccountB, new BigDecimal(101)));
+        assertEquals(new BigDecimal(100), myTestAccountA.getBalance());
+        assertEquals(new BigDecimal(10), myTestAccountB.getBalance());
+        assertEquals(new BigDecimal(10), myTestAccountC.getBalance());
+    }
+
+    @Test
+    void testRejectedDepositIsRolledBack() {
+        // Account D starts further in the red than it is allowed to, so any deposit that doesn't lift it
+        // above -max_overdrawn is rejected by setBalance
+        Account myTestAccountA = new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        Account myTestAccountD = new Account(new BigDecimal(-100), "SEK", new BigDecimal(10));
+        assertEquals(TransferResult.DEPOSIT_REJECTED, engine.transfer(myTestAccountA, myTestAccountD, new BigDecimal(5)));
+        assertEquals(new BigDecimal(100), myTestAccountA.getBalance());
+        assertEquals(new BigDecimal(-100), myTestAccountD.getBalance());
+    }
+
+    @RepeatedTest(5)
+    void testParallelTransfersKeepTotalAndDontDeadlock() throws Exception {
+        // Plain (not thread-safe) accounts, every change goes through the engine.
+        // Few accounts and random directions means lots of A->B and B->A transfers at the same time.
+        Account[] accounts = new Account[8];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new Account(new BigDecimal(1000), "SEK", new BigDecimal(100));
+        }
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 20000; i++) {
+                    Account from = accounts[random.nextInt(accounts.length)];
+                    Account to = accounts[random.nextInt(accounts.length)];
+                    engine.transfer(from, to, new BigDecimal(random.nextInt(1, 300)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS); // A deadlock would show up as a timeout here
+        }
+        pool.shutdown();
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (Account account : accounts) {
+            assertTrue(account.getBalance().compareTo(new BigDecimal(-100)) >= 0);
+            total = total.add(account.getBalance());
+        }
+        assertEquals(new BigDecimal(8000), total);
+    }
+
+    @RepeatedTest(5)
+    void testTransfersWhileAccountsChangeDirectly() throws Exception {
+        // Thread-safe accounts that other threads deposit to and withdraw from while the engine moves money,
+        // a transfer must never mistake one of those changes for its own
+        ConcurrentAccount[] accounts = new ConcurrentAccount[2];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = new ConcurrentAccount(new BigDecimal(1000), "SEK", BigDecimal.ZERO);
+        }
+        int threads = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BigDecimal>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean direct = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                BigDecimal added = BigDecimal.ZERO; // Net money put in by direct changes
+                for (int i = 0; i < 20000; i++) {
+                    int from = random.nextInt(2);
+                    BigDecimal amount = new BigDecimal(random.nextInt(1, 300));
+                    if (!direct) {
+                        engine.transfer(accounts[from], accounts[1 - from], amount);
+                    } else if (random.nextBoolean()) {
+                        accounts[from].deposit(amount);
+                        added = added.add(amount);
+                    } else if (accounts[from].tryWithdraw(amount)) {
+                        added = added.subtract(amount);
+                    }
+                }
+                return added;
+            }));
+        }
+        start.countDown();
+        BigDecimal expected = new BigDecimal(2000);
+        for (Future<BigDecimal> future : futures) {
+            expected = expected.add(future.get(60, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (ConcurrentAccount account : accounts) {
+            assertTrue(account.getBalance().signum() >= 0);
+            total = total.add(account.getBalance());
+        }
+        assertEquals(expected, total);
+    }
+
+    @Test
+    void testTryWithdrawAndTryDeposit() {
+        ConcurrentAccount myTestAccount = new ConcurrentAccount(new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        assertTrue(myTestAccount.tryWithdraw(new BigDecimal(60)));
+        assertFalse(myTestAccount.tryWithdraw(new BigDecimal(60)));
+        assertFalse(myTestAccount.tryDeposit(BigDecimal.ZERO));
+        assertTrue(myTestAccount.tryDeposit(BigDecimal.ONE));
+        assertEquals(new BigDecimal(41), myTestAccount.getBalance());
+
+        // The default, for accounts that aren't shared between threads
+        Account myTestAccountB = new Account(new BigDecimal(100), "SEK", BigDecimal.ZERO);
+        assertTrue(myTestAccountB.tryWithdraw(new BigDecimal(100)));
+        assertFalse(myTestAccountB.tryWithdraw(BigDecimal.ONE));
+        assertFalse(myTestAccountB.tryDeposit(new BigDecimal(-1)));
+        assertTrue(myTestAccountB.tryDeposit(BigDecimal.ONE));
+    }
+}